@@ -0,0 +1,93 @@
+package com.github.gcms.blast;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bit reading and Huffman decoding of <code>BlastInput</code>, per
+ * operation, over 2 MB of random bits.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BlastInputBenchmark {
+    private static final int SIZE = 1024 * 1024 * 2;
+    private static final int OPERATIONS = 1024 * 1024;
+
+    private byte[] data;
+    private BlastInput input;
+
+    @Setup
+    public void setup() {
+        data = new byte[SIZE];
+        new Random(CorpusGenerator.DEFAULT_SEED).nextBytes(data);
+        input = new BlastInput(null);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void bits1(Blackhole blackhole) throws IOException, BlastFormatException {
+        bits(1, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void bits8(Blackhole blackhole) throws IOException, BlastFormatException {
+        bits(8, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void bits13(Blackhole blackhole) throws IOException, BlastFormatException {
+        bits(13, blackhole);
+    }
+
+    private void bits(int need, Blackhole blackhole) throws IOException, BlastFormatException {
+        input.reset(new ByteArrayInputStream(data));
+        for (int i = 0; i < OPERATIONS; i++)
+            blackhole.consume(input.bits(need));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void decodeLiteral(Blackhole blackhole) throws IOException, BlastFormatException {
+        decode(Blast.LITCODE, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void decodeLength(Blackhole blackhole) throws IOException, BlastFormatException {
+        decode(Blast.LENCODE, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void decodeDistance(Blackhole blackhole) throws IOException, BlastFormatException {
+        decode(Blast.DISTCODE, blackhole);
+    }
+
+    /* codes are at most 13 bits, so the data holds more than OPERATIONS of them */
+    private void decode(Huffman huffman, Blackhole blackhole) throws IOException, BlastFormatException {
+        input.reset(new ByteArrayInputStream(data));
+        for (int i = 0; i < OPERATIONS; i++)
+            blackhole.consume(input.decode(huffman));
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.gcms.blast;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decompression of a synthetic 4 MB corpus by <code>BlastInputStream</code>,
+ * in binary and ASCII modes with each dictionary size, reading a byte at a
+ * time or into arrays of several sizes.  Scores are the time to decompress
+ * the whole corpus.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BlastInputStreamBenchmark {
+    private static final int SIZE = 1024 * 1024 * 4;
+
+    @Param({"binary", "ascii"})
+    public String mode;
+
+    @Param({"1024", "2048", "4096"})
+    public int dictSize;
+
+    /* 1 reads a byte at a time */
+    @Param({"1", "64", "4096", "65536"})
+    public int readSize;
+
+    private byte[] compressed;
+    private byte[] buffer;
+
+    @Setup
+    public void setup() throws IOException {
+        byte[] data = CorpusGenerator.generate(CorpusGenerator.DEFAULT_SEED, SIZE);
+        compressed = CorpusGenerator.compress(data, mode.equals("ascii"), dictSize);
+        buffer = new byte[readSize];
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+        long total = 0;
+        try (InputStream in = new BlastInputStream(new ByteArrayInputStream(compressed))) {
+            if (readSize == 1) {
+                int b;
+                while ((b = in.read()) != -1)
+                    total += b;
+            } else {
+                int n;
+                while ((n = in.read(buffer)) != -1)
+                    total += n;
+            }
+        }
+
+        return total;
+    }
+}
@@ -0,0 +1,132 @@
+package com.github.gcms.blast;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates synthetic PKWare DCL corpora for the benchmarks.
+ * <p>
+ * The uncompressed data resembles DATASUS records: fixed-width lines of
+ * repeated codes, numbers and a few words of text.  It only depends on the
+ * seed, as <code>java.util.Random</code> is specified, so every run and
+ * machine measures the same bytes.
+ * <pre>
+ * mvn -P jmh test-compile exec:exec -Djmh.main=com.github.gcms.blast.CorpusGenerator -Djmh.args="target/corpus 64"
+ * </pre>
+ * writes a 64 MB corpus compressed in binary and ASCII modes with each
+ * dictionary size, e.g. <code>corpus-ascii-4096.pk</code>.
+ */
+public final class CorpusGenerator {
+    static final int[] DICTIONARY_SIZES = {1024, 2048, 4096};
+
+    static final long DEFAULT_SEED = 0x5eed;
+
+    private static final String[] WORDS = {
+            "PARTO", "NORMAL", "CESARIANO", "PNEUMONIA", "INSUFICIENCIA", "CARDIACA", "FRATURA", "FEMUR",
+            "DIABETES", "MELLITUS", "HIPERTENSAO", "ESSENCIAL", "INFECCAO", "TRATO", "URINARIO", "ASMA",
+            "GASTROENTERITE", "APENDICITE", "AGUDA", "COLECISTITE", "HERNIA", "INGUINAL", "DENGUE", "CLASSICO"
+    };
+
+    private CorpusGenerator() {
+    }
+
+    /**
+     * Generates uncompressed data.
+     *
+     * @param seed the seed
+     * @param size the number of bytes
+     * @return the data
+     */
+    public static byte[] generate(long seed, int size) {
+        Random random = new Random(seed);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size + 128);
+        StringBuilder line = new StringBuilder(128);
+        while (out.size() < size) {
+            line.setLength(0);
+            line.append(random.nextInt(50) == 0 ? '*' : ' ');
+            line.append(520000 + random.nextInt(246) * 10);                       /* municipality */
+            line.append(random.nextBoolean() ? '1' : '3');                          /* sex */
+            pad(line, Integer.toString(random.nextInt(100)), 2);                   /* age */
+            pad(line, String.format(Locale.ROOT, "%.2f", random.nextInt(2000000) / 100.0), 14); /* value */
+            line.append(String.format(Locale.ROOT, "%08d", 20130101 + random.nextInt(28)));     /* date */
+
+            StringBuilder text = new StringBuilder();
+            for (int i = random.nextInt(4); i >= 0; i--)
+                text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            while (text.length() < 40)
+                text.append(' ');
+            line.append(text, 0, 40);
+
+            for (int i = 0; i < 6; i++)                                              /* rarely repeated */
+                line.append((char) ('0' + random.nextInt(10)));
+
+            byte[] b = line.toString().getBytes(StandardCharsets.ISO_8859_1);
+            out.write(b, 0, b.length);
+        }
+
+        byte[] data = out.toByteArray();
+        return data.length == size ? data : Arrays.copyOf(data, size);
+    }
+
+    private static void pad(StringBuilder line, String value, int width) {
+        for (int i = value.length(); i < width; i++)
+            line.append(' ');
+        line.append(value);
+    }
+
+    /**
+     * Compresses data at the default level.
+     *
+     * @param data     the uncompressed data
+     * @param ascii    <code>true</code> for ASCII mode, <code>false</code> for binary
+     * @param dictSize the dictionary size: 1024, 2048 or 4096
+     * @return the compressed data
+     * @throws IOException never, as data is written to memory
+     */
+    public static byte[] compress(byte[] data, boolean ascii, int dictSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+        try (OutputStream blast = new BlastOutputStream(out, ascii, dictSize, BlastOutputStream.DEFAULT_LEVEL)) {
+            blast.write(data);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes the corpora to a directory.
+     *
+     * @param args the directory, the size in MB (16 by default) and the seed
+     * @throws IOException if an I/O error occurs
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: CorpusGenerator directory [sizeMB [seed]]");
+            System.exit(2);
+        }
+
+        Path dir = Paths.get(args[0]);
+        int size = (args.length > 1 ? Integer.parseInt(args[1]) : 16) * 1024 * 1024;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+
+        Files.createDirectories(dir);
+        byte[] data = generate(seed, size);
+        Files.write(dir.resolve("corpus.txt"), data);
+        for (boolean ascii : new boolean[]{false, true}) {
+            for (int dictSize : DICTIONARY_SIZES) {
+                Path file = dir.resolve("corpus-" + (ascii ? "ascii" : "binary") + "-" + dictSize + ".pk");
+                byte[] compressed = compress(data, ascii, dictSize);
+                Files.write(file, compressed);
+                System.out.printf("%s: %d bytes, ratio %.3f%n", file, compressed.length,
+                        (double) compressed.length / data.length);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.gcms.dbc;
+
+import com.github.gcms.dbf.DBFReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end decoding of <code>RDGO1301.dbc</code>, 18 MB of DBF records,
+ * from memory: decompression alone, and decompression with a scan of a
+ * numeric field by <code>DBFReader</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DBCInputStreamBenchmark {
+    private byte[] dbc;
+    private byte[] buffer;
+
+    @Setup
+    public void setup() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = getClass().getResourceAsStream("/RDGO1301.dbc")) {
+            byte[] b = new byte[1024 * 64];
+            int n;
+            while ((n = in.read(b)) != -1)
+                out.write(b, 0, n);
+        }
+
+        dbc = out.toByteArray();
+        buffer = new byte[1024 * 64];
+    }
+
+    @Benchmark
+    public long decode() throws IOException {
+        long total = 0;
+        try (InputStream in = new DBCInputStream(new ByteArrayInputStream(dbc))) {
+            int n;
+            while ((n = in.read(buffer)) != -1)
+                total += n;
+        }
+
+        return total;
+    }
+
+    @Benchmark
+    public long scan() throws IOException {
+        long total = 0;
+        try (DBFReader reader = new DBFReader(new DBCInputStream(new ByteArrayInputStream(dbc))).select("IDADE")) {
+            while (reader.next())
+                total += reader.getInt(0);
+        }
+
+        return total;
+    }
+}
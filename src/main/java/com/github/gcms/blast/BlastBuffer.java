@@ -1,14 +1,29 @@
 package com.github.gcms.blast;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Checksum;
 
 /**
  * Buffer for storing uncompressed data.
+ * <p>
+ * The buffer is circular: the bytes written last end at the cursor and the
+ * ones before them wrap around from the end of the buffer.  They are the
+ * history matches refer to.  Data can also be written to an external array,
+ * see <code>direct</code>, in which case the buffer only keeps the history.
  */
 public class BlastBuffer {
+    /* copies up to this length are done byte by byte */
+    private static final int SHORT_COPY = 16;
 
     private final byte[] buffer;
     private int pos, count;
 
+    private byte[] target;      /* array being written, buffer unless direct */
+    private int start, limit;   /* bounds of the data written to target */
+    private int end;            /* end of the history in buffer */
+    private int history;        /* bytes of history before start in direct mode */
+
     /**
      * Creates a new <code>BlastBuffer</code> and allocates the space.
      *
@@ -16,6 +31,8 @@ public class BlastBuffer {
      */
     BlastBuffer(int bufferSize) {
         this.buffer = new byte[bufferSize];
+        this.target = buffer;
+        this.limit = this.end = bufferSize;
     }
 
     /**
@@ -34,17 +51,18 @@ public class BlastBuffer {
      * @return true if the buffer is full; false otherwise.
      */
     public boolean isFull() {
-        return count == buffer.length;
+        return count == limit;
     }
 
 
     /**
-     * Returns the current number of bytes stored in the buffer.
+     * Returns the current number of bytes stored in the buffer.  In direct
+     * mode, the history kept in the buffer is counted as well.
      *
      * @return the buffer current size.
      */
     public int size() {
-        return count;
+        return count - start + history;
     }
 
     /**
@@ -56,6 +74,15 @@ public class BlastBuffer {
         return buffer.length;
     }
 
+    /**
+     * Returns the number of bytes that can still be written to the buffer.
+     *
+     * @return number of bytes left until the buffer is full.
+     */
+    public int remaining() {
+        return limit - count;
+    }
+
     /**
      * Returns the number of bytes available from the current position.
      *
@@ -99,6 +126,40 @@ public class BlastBuffer {
         return copyLen;
     }
 
+    /**
+     * Reads at most <code>out.remaining()</code> bytes from the buffer and
+     * advance the cursor.
+     *
+     * @param out the byte buffer into which the data is read
+     * @return the actual number of bytes read
+     */
+    public int read(ByteBuffer out) {
+        int copyLen = Math.min(out.remaining(), count - pos);
+
+        if (copyLen > 0) {
+            out.put(this.buffer, pos, copyLen);
+            pos += copyLen;
+        }
+
+        return copyLen;
+    }
+
+    /**
+     * Passes all the bytes available to a checksum instead of reading them,
+     * and advance the cursor.
+     *
+     * @param checksum the checksum updated with the bytes
+     * @return the number of bytes passed
+     */
+    public int update(Checksum checksum) {
+        int len = count - pos;
+
+        checksum.update(this.buffer, pos, len);
+        pos = count;
+
+        return len;
+    }
+
     /**
      * Resets the internal cursor to the beginning of the buffer.
      */
@@ -106,26 +167,189 @@ public class BlastBuffer {
         this.pos = this.count = 0;
     }
 
+    /**
+     * Empties the buffer and zeroes its contents, so no history is left.
+     */
+    public void reset() {
+        Arrays.fill(buffer, (byte) 0);
+        clear();
+    }
+
+    /**
+     * Makes room for more data once all data has been read.  A full buffer
+     * starts over from its beginning, keeping its contents as history; a
+     * buffer which is not full yet is just appended to.
+     */
+    public void recycle() {
+        if (isEmpty() && count == buffer.length)
+            clear();
+    }
+
+    /**
+     * Copies the last <code>window.length</code> bytes written, oldest first.
+     * The buffer must not be in direct mode.
+     *
+     * @param window the array the bytes are copied to, at most the buffer length
+     */
+    void window(byte[] window) {
+        assert target == buffer;
+
+        int from = count - window.length;
+        if (from >= 0) {
+            System.arraycopy(buffer, from, window, 0, window.length);
+        } else {
+            System.arraycopy(buffer, buffer.length + from, window, 0, -from);
+            System.arraycopy(buffer, 0, window, -from, count);
+        }
+    }
+
+    /**
+     * Replaces the history by the bytes of <code>window</code>, oldest first,
+     * as taken by <code>window</code>.  The buffer is left empty.
+     *
+     * @param window the history
+     */
+    void restore(byte[] window) {
+        System.arraycopy(window, 0, buffer, buffer.length - window.length, window.length);
+
+        target = buffer;
+        start = history = 0;
+        limit = end = buffer.length;
+        pos = count = buffer.length;
+    }
+
+    /**
+     * Starts writing decoded data straight to <code>out</code> instead of the
+     * buffer, which must be empty.  Matches reaching before the data written
+     * to <code>out</code> are copied from the buffer contents.
+     *
+     * @param out    the byte array into which the data is written
+     * @param offset the start offset in out
+     * @param len    the maximum number of bytes written
+     */
+    public void direct(byte[] out, int offset, int len) {
+        assert isEmpty() && target == buffer;
+
+        /* the history of a cleared buffer ends at its end */
+        history = count;
+        end = count == 0 ? buffer.length : count;
+        target = out;
+        start = count = offset;
+        limit = offset + len;
+    }
+
+    /**
+     * Stops writing to the array passed to <code>direct</code> and keeps the
+     * last bytes written to it as the buffer contents, so they are the history
+     * for the data decoded next.  The buffer is left empty.
+     *
+     * @return the number of bytes written to the array
+     */
+    public int release() {
+        int written = count - start;
+        int length = buffer.length;
+        int last = end;
+
+        if (written >= length) {
+            System.arraycopy(target, count - length, buffer, 0, length);
+            last = length;
+        } else {
+            /* append after the history, wrapping around */
+            int n = Math.min(written, length - last);
+            System.arraycopy(target, start, buffer, last, n);
+            System.arraycopy(target, start + n, buffer, 0, written - n);
+            last = n < written ? written - n : last + n;
+        }
+
+        target = buffer;
+        start = history = 0;
+        limit = end = length;
+        pos = count = last;
+
+        return written;
+    }
+
     /**
      * Writes a byte to the current cursor position in the buffer and advances the cursor
      *
      * @param data byte to be written
      */
     public void put(int data) {
-        buffer[count++] = (byte) data;
+        target[count++] = (byte) data;
     }
 
+    /**
+     * Copy at most <code>len</code> bytes starting <code>distance</code> bytes
+     * back from the current cursor position, stopping at the end of the buffer.
+     * <p>
+     * Bytes before the ones written since the buffer was cleared, or since
+     * <code>direct</code>, are taken from the history, wrapping around the end
+     * of the buffer.
+     *
+     * @param distance how far back the data to be copied starts
+     * @param len      number of bytes to be copied
+     * @return the number of bytes actually copied
+     */
+    public int copy(int distance, int len) {
+        len = Math.min(len, limit - count);
+
+        /* copy the part in the history, which may wrap around */
+        int left = len;
+        int back = distance - (count - start);
+        while (back > 0 && left > 0) {
+            int from = end - back;
+            if (from < 0)
+                from += buffer.length;
+
+            int n = Math.min(left, (from < end ? end : buffer.length) - from);
+            System.arraycopy(buffer, from, target, count, n);
+            count += n;
+            left -= n;
+            back -= n;
+        }
+
+        if (left > 0)
+            copyFrom(count - distance, left);
+
+        return len;
+    }
 
     /**
      * Copy <code>len</code> number of bytes starting from <code>offset</code> to the current
      * cursor position.
+     * <p>
+     * When the source overlaps the bytes being written, i.e. a match repeats
+     * its own output, the bytes between <code>offset</code> and the cursor
+     * are a pattern which is copied in chunks that double in size.  Short
+     * copies are done byte by byte, which is cheaper than a call to
+     * <code>System.arraycopy</code>.
      *
      * @param offset offset from which start copying data
      * @param len    number of bytes to be copied
      */
     public void copyFrom(int offset, int len) {
-        while (len-- > 0)
-            buffer[count++] = buffer[offset++];
+        byte[] target = this.target;
+
+        if (len <= SHORT_COPY) {
+            while (len-- > 0)
+                target[count++] = target[offset++];
+            return;
+        }
+
+        int distance = count - offset;
+        if (distance <= 0 || distance >= len) {
+            System.arraycopy(target, offset, target, count, len);
+            count += len;
+            return;
+        }
+
+        while (len > 0) {
+            int chunk = Math.min(distance, len);
+            System.arraycopy(target, offset, target, count, chunk);
+            count += chunk;
+            len -= chunk;
+            distance += chunk;
+        }
     }
 
 }
@@ -0,0 +1,160 @@
+package com.github.gcms.blast;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Implements a channel for uncompressing data in the PKWare Data Compression
+ * Library (DCL) compressed format.
+ * <p>
+ * The compressed data is read either from a <code>ByteBuffer</code>, which
+ * may be a direct or a <code>MappedByteBuffer</code>, without copying it, or
+ * from another channel through a direct buffer.  Uncompressed data is written
+ * to the buffers passed to <code>read</code>.
+ */
+public class BlastChannel implements ReadableByteChannel {
+    private final Exploder exploder = new Exploder();
+    private final ReadableByteChannel source;
+    private final ByteBuffer input;
+    private final BlastStats stats = BlastStats.create();  /* null if off */
+
+    private boolean open = true;
+
+    /**
+     * Creates a new channel decoding the data between the position and the
+     * limit of <code>input</code>.  The position is advanced as the data is
+     * consumed.
+     *
+     * @param input the compressed data
+     */
+    public BlastChannel(ByteBuffer input) {
+        this.source = null;
+        this.input = input;
+        exploder.stats = stats;
+        exploder.setInput(input);
+    }
+
+    /**
+     * Creates a new channel decoding the data read from <code>source</code>.
+     * Input is read ahead in blocks, so the source may be consumed past the
+     * end of the compressed data.
+     *
+     * @param source the channel from which compressed data is read
+     */
+    public BlastChannel(ReadableByteChannel source) {
+        this.source = source;
+        this.input = ByteBuffer.allocateDirect(BlastInput.DEFAULT_BUFFER_SIZE);
+        this.input.flip();
+        exploder.stats = stats;
+        exploder.setInput(input);
+    }
+
+    /**
+     * Reads uncompressed data into the given buffer, from its position up to
+     * its limit.
+     *
+     * @param dst the buffer into which the data is read
+     * @return the actual number of bytes read, or -1 if the end of the
+     * compressed data is reached
+     * @throws IOException          if an I/O error has occurred
+     * @throws BlastFormatException if the compressed input is malformed.
+     */
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!open)
+            throw new ClosedChannelException();
+
+        Object event = BlastEvents.beginChunk();
+        long in = event != null || stats != null ? exploder.getBytesRead() : 0;
+        long start = stats != null ? System.nanoTime() : 0;
+
+        int total = 0;
+        while (dst.hasRemaining() && !exploder.finished()) {
+            if (exploder.needsInput() && !load())
+                throw new BlastFormatException(2); /* out of input */
+
+            total += exploder.explode(dst);
+        }
+
+        if (stats != null) {
+            /* a buffer is read in place, so its bytes count as read as they are consumed */
+            if (source == null)
+                stats.read((int) (exploder.getBytesRead() - in), 0);
+            stats.fill(System.nanoTime() - start);
+            if (exploder.finished())
+                stats.publish();
+        }
+        if (event != null)
+            BlastEvents.endChunk(event, exploder.getBytesRead() - in, total);
+
+        return total == 0 && exploder.finished() && dst.hasRemaining() ? -1 : total;
+    }
+
+    private boolean load() throws IOException {
+        if (source == null)
+            return false;
+
+        long start = stats != null ? System.nanoTime() : 0;
+        int len;
+        input.clear();
+        do {
+            len = source.read(input);
+        } while (len == 0);
+        input.flip();
+        if (stats != null)
+            stats.read(len, System.nanoTime() - start);
+
+        exploder.setInput(input);
+        return len > 0;
+    }
+
+    /**
+     * Returns the number of compressed bytes consumed so far.
+     *
+     * @return the number of bytes consumed
+     */
+    public long getTotalIn() {
+        return exploder.getBytesRead();
+    }
+
+    /**
+     * Returns the number of uncompressed bytes read so far.
+     *
+     * @return the number of bytes read
+     */
+    public long getTotalOut() {
+        return exploder.getBytesWritten();
+    }
+
+    /**
+     * Returns the decoding statistics of the channel, if they were enabled
+     * when it was created.
+     *
+     * @return the statistics, or <code>null</code> if off
+     * @see BlastStats#setEnabled(boolean)
+     */
+    public BlastStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Closes the channel, and the source channel if there is one.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        open = false;
+        if (stats != null)
+            stats.publish();
+        if (source != null)
+            source.close();
+    }
+}
@@ -8,15 +8,26 @@ import static com.github.gcms.blast.Blast.*;
  * Decompress data and keep decompression algorithm state.
  */
 public class BlastDecoder {
+    /* longest match, written at once by the fast loop */
+    static final int MAX_MATCH_LENGTH = 518;
+
+    /* most bits taken by a literal or a match: flag, length code and extra
+     * bits, distance code and low bits; all codes are complete, so any bits
+     * resolve to a valid symbol */
+    static final int MAX_SYMBOL_BITS = 1 + 7 + 8 + 8 + 6;
+
     private final BlastInput input;
 
     private BlastHeader header; /* header information */
 
+    private final boolean check; /* true to check distances after reset */
     private boolean first;      /* true to check distances (for first 4K) */
 
     private int copyDistance;   /* distance for copy */
     private int copyLength;     /* length for copy */
 
+    BlastStats stats;           /* statistics, null if off */
+
 
     /**
      * Creates a <code>BlastDecoder</code> for decoding data from a
@@ -27,9 +38,20 @@ public class BlastDecoder {
      */
     public BlastDecoder(BlastInput input, boolean first) {
         this.input = input;
+        this.check = first;
         this.first = first;
     }
 
+    /**
+     * Resets the decoder so a new stream can be decoded.  The
+     * <code>BlastInput</code> must be reset as well.
+     */
+    public void reset() {
+        header = null;
+        first = check;
+        copyDistance = copyLength = 0;
+    }
+
     /**
      * Decode data from input into a buffer.
      *
@@ -41,10 +63,10 @@ public class BlastDecoder {
      */
     public boolean read(BlastBuffer buffer) throws IOException, BlastFormatException {
         if (header == null)
-            header = BlastHeader.read(input);
+            readHeader();
 
         if (copyLength > 0) {   // remaining bytes to copy
-            copyLength -= copy(buffer, copyLength, copyDistance);
+            copyLength -= buffer.copy(copyDistance, copyLength);
         } else if (input.bits(1) != 0) { /* decode literals and length/distance pairs */
             /* decoded symbol, extra bits for distance */
             int symbol = input.decode(LENCODE);
@@ -62,9 +84,11 @@ public class BlastDecoder {
             copyDistance++;
             if (first && copyDistance > buffer.size())
                 throw new BlastFormatException(-3); /* distance too far back */
+            if (stats != null)
+                stats.match(copyLength, copyDistance);
 
             /* copy length bytes from distance bytes back */
-            copyLength -= copy(buffer, copyLength, copyDistance);
+            copyLength -= buffer.copy(copyDistance, copyLength);
         } else {
             /* get literal and put it */
             int symbol = header.encoded
@@ -72,6 +96,8 @@ public class BlastDecoder {
                     : input.bits(8); /* decoded symbol, extra bits for distance */
 
             buffer.put(symbol);
+            if (stats != null)
+                stats.literal();
         }
 
         if (buffer.isFull())
@@ -80,25 +106,91 @@ public class BlastDecoder {
         return true;
     }
 
-    private static int copy(BlastBuffer buffer, int copyLength, int copyDistance) {
-        int bufferSize = buffer.size();
-
-        int from = bufferSize - copyDistance;
-
-        /* copy counter */
-        int copyCounter = buffer.length();
-        if (bufferSize < copyDistance) {
-            from += copyCounter;
-            copyCounter = copyDistance;
+    /**
+     * Decode data from input until the buffer is full or the end of the
+     * compressed data is reached.
+     * <p>
+     * While there is room for a whole match in the buffer and enough bits
+     * loaded for any symbol, symbols are decoded in a single loop straight
+     * from the bit buffer and each match is copied at once.  The remaining
+     * bytes at the end of the buffer and of the input are decoded one symbol
+     * at a time by <code>read(BlastBuffer)</code>.
+     *
+     * @param buffer a <code>BlastBuffer</code> where the data is to be read.
+     * @return <code>true</code> if there is still more data to be read; false
+     * if end of file is detected.
+     * @throws IOException          if an I/O error occurs.
+     * @throws BlastFormatException if the compressed input is malformed.
+     */
+    public boolean fill(BlastBuffer buffer) throws IOException, BlastFormatException {
+        if (header == null)
+            readHeader();
+
+        if (copyLength > 0)     // remaining bytes to copy
+            copyLength -= buffer.copy(copyDistance, copyLength);
+
+        BlastInput input = this.input;
+        BlastStats stats = this.stats;
+        boolean encoded = header.encoded;
+        int dictSize = header.dictSize;
+
+        while (buffer.remaining() >= MAX_MATCH_LENGTH && input.fill(MAX_SYMBOL_BITS)) {
+            long bitbuf = input.peek();
+
+            if ((bitbuf & 1) != 0) {
+                /* length code and extra bits */
+                int entry = LENCODE.lookup((int) (bitbuf >>> 1));
+                int symbol = entry >> 4;
+                int used = 1 + (entry & 15);
+                int len = BASE[symbol] + ((int) (bitbuf >>> used) & ((1 << EXTRA[symbol]) - 1));
+                used += EXTRA[symbol];
+                if (len == 519) {
+                    input.drop(used);
+                    return false; /* end code */
+                }
+
+                /* distance code and low bits */
+                symbol = len == 2 ? 2 : dictSize;
+                entry = DISTCODE.lookup((int) (bitbuf >>> used));
+                used += entry & 15;
+                int distance = ((entry >> 4) << symbol) + ((int) (bitbuf >>> used) & ((1 << symbol) - 1)) + 1;
+                input.drop(used + symbol);
+
+                if (first && distance > buffer.size())
+                    throw new BlastFormatException(-3); /* distance too far back */
+                if (stats != null)
+                    stats.match(len, distance);
+
+                buffer.copy(distance, len);
+            } else if (encoded) {
+                int entry = LITCODE.lookup((int) (bitbuf >>> 1));
+                buffer.put(entry >> 4);
+                input.drop(1 + (entry & 15));
+                if (stats != null)
+                    stats.literal();
+            } else {
+                buffer.put((int) (bitbuf >>> 1));
+                input.drop(9);
+                if (stats != null)
+                    stats.literal();
+            }
         }
 
-        copyCounter -= bufferSize;
-        if (copyCounter > copyLength)
-            copyCounter = copyLength;
+        /* the loop may fill the buffer exactly, leaving nothing to read() */
+        if (buffer.isFull())
+            first = false;
 
-        buffer.copyFrom(from, copyCounter);
+        while (!buffer.isFull()) {
+            if (!read(buffer))
+                return false;
+        }
 
-        return copyCounter;
+        return true;
     }
 
+    private void readHeader() throws IOException, BlastFormatException {
+        header = BlastHeader.read(input);
+        if (stats != null)
+            stats.header(header.encoded, header.dictSize);
+    }
 }
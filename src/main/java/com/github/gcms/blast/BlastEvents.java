@@ -0,0 +1,31 @@
+package com.github.gcms.blast;
+
+/**
+ * Flight recorder events of <code>BlastInputStream</code>.  This version,
+ * for Java 8, records nothing; the jar carries another one for Java 11 and
+ * later, in <code>META-INF/versions/11</code>, which emits a
+ * <code>com.github.gcms.blast.Chunk</code> event for each chunk decoded.
+ */
+final class BlastEvents {
+    private BlastEvents() {
+    }
+
+    /**
+     * Starts timing a chunk, if chunk events are recorded.
+     *
+     * @return the event, or <code>null</code> if off
+     */
+    static Object beginChunk() {
+        return null;
+    }
+
+    /**
+     * Ends and commits a chunk event.
+     *
+     * @param event    the event returned by <code>beginChunk</code>
+     * @param bytesIn  the compressed bytes read for the chunk
+     * @param bytesOut the bytes decoded
+     */
+    static void endChunk(Object event, long bytesIn, int bytesOut) {
+    }
+}
@@ -24,10 +24,23 @@ class BlastHeader {
      */
     static BlastHeader read(BlastInput input) throws IOException, BlastFormatException {
         int lit = input.bits(8);
+        int dict = input.bits(8);
+
+        return create(lit, dict);
+    }
+
+    /**
+     * Check the header fields and create a <code>BlastHeader</code>.
+     *
+     * @param lit  literal flag, first header byte
+     * @param dict log2(dictionary size) - 6, second header byte
+     * @return a new <code>BlastHeader</code>.
+     * @throws BlastFormatException if the header is malformed.
+     */
+    static BlastHeader create(int lit, int dict) throws BlastFormatException {
         if (lit > 1)
             throw new BlastFormatException(-1);
 
-        int dict = input.bits(8);
         if (dict < 4 || dict > 6)
             throw new BlastFormatException(-2);
 
@@ -0,0 +1,300 @@
+package com.github.gcms.blast;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Index of checkpoints in data compressed in the PKWare Data Compression
+ * Library (DCL) format, for resuming decompression from the middle of it.
+ * <p>
+ * Matches reach at most 4 KB back, so a checkpoint only needs the position in
+ * the compressed data, to the bit, the copy in progress and the last 4 KB of
+ * uncompressed data.  Checkpoints are taken about every <code>interval</code>
+ * uncompressed bytes, so an index takes about <code>4 KB / interval</code> of
+ * the uncompressed size.  An index can be saved alongside the compressed file
+ * and loaded back with <code>load</code>.
+ *
+ * @see SeekableBlastInputStream
+ */
+public class BlastIndex {
+    /**
+     * Default number of uncompressed bytes between checkpoints.
+     */
+    public static final long DEFAULT_INTERVAL = 1024 * 1024;
+
+    private static final int MAGIC = 0x424c5849;   /* "BLXI" */
+    private static final int VERSION = 1;
+
+    /* size of the buffer decoded data is discarded into */
+    private static final int SCRATCH_SIZE = 1024 * 64;
+
+    private final BlastHeader header;       /* header, null if no checkpoints */
+    private final long interval;
+    private final long length;              /* uncompressed length */
+    private final long compressedLength;
+    private final List<Checkpoint> checkpoints;
+
+    private BlastIndex(BlastHeader header, long interval, long length, long compressedLength,
+                       List<Checkpoint> checkpoints) {
+        this.header = header;
+        this.interval = interval;
+        this.length = length;
+        this.compressedLength = compressedLength;
+        this.checkpoints = checkpoints;
+    }
+
+    /**
+     * Builds an index by decompressing all data read from a channel, from its
+     * current position to the end of the compressed data.
+     *
+     * @param in       the channel from which compressed data is read
+     * @param interval the number of uncompressed bytes between checkpoints
+     * @return the index
+     * @throws IOException          if an I/O error has occurred
+     * @throws BlastFormatException if the compressed input is malformed.
+     */
+    public static BlastIndex build(ReadableByteChannel in, long interval) throws IOException {
+        if (interval < BlastInputStream.WINDOW_SIZE)
+            throw new IllegalArgumentException("Interval smaller than the window size: " + interval);
+
+        Exploder exploder = new Exploder();
+        ByteBuffer input = ByteBuffer.allocateDirect(BlastInput.DEFAULT_BUFFER_SIZE);
+        input.flip();
+        exploder.setInput(input);
+
+        byte[] scratch = new byte[SCRATCH_SIZE];
+        List<Checkpoint> checkpoints = new ArrayList<>();
+        long next = interval;
+        while (!exploder.finished()) {
+            if (exploder.needsInput()) {
+                input.clear();
+                int len;
+                do {
+                    len = in.read(input);
+                } while (len == 0);
+                input.flip();
+
+                if (len < 0)
+                    throw new BlastFormatException(2); /* out of input */
+            }
+
+            exploder.explode(scratch);
+            if (exploder.getBytesWritten() >= next) {
+                Checkpoint checkpoint = exploder.checkpoint();
+                if (checkpoint != null) {
+                    checkpoints.add(checkpoint);
+                    next = checkpoint.output + interval;
+                }
+            }
+        }
+
+        return new BlastIndex(checkpoints.isEmpty() ? null : exploder.getHeader(), interval,
+                exploder.getBytesWritten(), exploder.getBytesRead(), checkpoints);
+    }
+
+    /**
+     * Returns the number of uncompressed bytes between checkpoints the index
+     * was built with.
+     *
+     * @return the checkpoint interval
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Returns the length of the uncompressed data.
+     *
+     * @return the number of uncompressed bytes
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the length of the compressed data.
+     *
+     * @return the number of compressed bytes
+     */
+    public long getCompressedLength() {
+        return compressedLength;
+    }
+
+    /**
+     * Returns the checkpoints, in increasing order of offset.
+     *
+     * @return the checkpoints
+     */
+    public List<Checkpoint> getCheckpoints() {
+        return Collections.unmodifiableList(checkpoints);
+    }
+
+    BlastHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * Finds the last checkpoint at or before an uncompressed offset.
+     *
+     * @param offset the uncompressed offset
+     * @return the checkpoint, or <code>null</code> if decompression has to
+     * start from the beginning
+     */
+    Checkpoint find(long offset) {
+        int low = 0, high = checkpoints.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (checkpoints.get(mid).output <= offset)
+                low = mid + 1;
+            else
+                high = mid - 1;
+        }
+
+        return high < 0 ? null : checkpoints.get(high);
+    }
+
+    /**
+     * Writes the index to a stream.
+     *
+     * @param os the output stream
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(OutputStream os) throws IOException {
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(interval);
+        out.writeLong(length);
+        out.writeLong(compressedLength);
+        out.writeByte(header != null && header.encoded ? 1 : 0);
+        out.writeByte(header != null ? header.dictSize : 0);
+        out.writeInt(checkpoints.size());
+        for (Checkpoint checkpoint : checkpoints) {
+            out.writeLong(checkpoint.output);
+            out.writeLong(checkpoint.input);
+            out.writeByte(checkpoint.bits);
+            out.writeByte(checkpoint.bitCount);
+            out.writeShort(checkpoint.copyDistance);
+            out.writeShort(checkpoint.copyLength);
+            out.write(checkpoint.window);
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads an index written by <code>write</code>.
+     *
+     * @param is the input stream
+     * @return the index
+     * @throws IOException if an I/O error occurs or the data is not an index
+     */
+    public static BlastIndex read(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(is);
+        if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            throw new IOException("Not a blast index");
+
+        long interval = in.readLong();
+        long length = in.readLong();
+        long compressedLength = in.readLong();
+        int lit = in.readUnsignedByte();
+        int dict = in.readUnsignedByte();
+        int count = in.readInt();
+
+        List<Checkpoint> checkpoints = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long output = in.readLong();
+            long input = in.readLong();
+            int bits = in.readUnsignedByte();
+            int bitCount = in.readUnsignedByte();
+            int copyDistance = in.readUnsignedShort();
+            int copyLength = in.readUnsignedShort();
+            byte[] window = new byte[BlastInputStream.WINDOW_SIZE];
+            in.readFully(window);
+
+            checkpoints.add(new Checkpoint(output, input, bits, bitCount, copyDistance, copyLength, window));
+        }
+
+        BlastHeader header = count > 0 ? BlastHeader.create(lit, dict) : null;
+        return new BlastIndex(header, interval, length, compressedLength, checkpoints);
+    }
+
+    /**
+     * Saves the index to a file, usually a sidecar of the compressed file.
+     *
+     * @param path the index file
+     * @throws IOException if an I/O error occurs
+     */
+    public void save(Path path) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            write(out);
+        }
+    }
+
+    /**
+     * Loads an index saved with <code>save</code>.
+     *
+     * @param path the index file
+     * @return the index
+     * @throws IOException if an I/O error occurs or the file is not an index
+     */
+    public static BlastIndex load(Path path) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Decoder state at an uncompressed offset.
+     */
+    public static class Checkpoint {
+        final long output;          /* uncompressed offset */
+        final long input;           /* offset of the next whole compressed byte */
+        final int bits;             /* bits left from the previous byte */
+        final int bitCount;         /* number of bits left, 0 to 7 */
+        final int copyDistance;     /* distance of the copy in progress */
+        final int copyLength;       /* bytes left to copy */
+        final byte[] window;        /* last 4 KB of uncompressed data */
+
+        Checkpoint(long output, long input, int bits, int bitCount, int copyDistance, int copyLength,
+                   byte[] window) {
+            this.output = output;
+            this.input = input;
+            this.bits = bits;
+            this.bitCount = bitCount;
+            this.copyDistance = copyDistance;
+            this.copyLength = copyLength;
+            this.window = window;
+        }
+
+        /**
+         * Returns the uncompressed offset of the checkpoint.
+         *
+         * @return the uncompressed offset
+         */
+        public long getOutput() {
+            return output;
+        }
+
+        /**
+         * Returns the offset in the compressed data decoding resumes from.
+         * Up to 7 bits of the byte before it are kept in the checkpoint.
+         *
+         * @return the compressed offset
+         */
+        public long getInput() {
+            return input;
+        }
+    }
+}
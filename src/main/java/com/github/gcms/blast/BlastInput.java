@@ -14,21 +14,152 @@ import static com.github.gcms.blast.Blast.MAX_CODE_LEN;
  * https://github.com/aminea7/GraphicalUserInterface/blob/master/mpxj/src/main/java/net/sf/mpxj/primavera/common/Blast.java
  */
 public class BlastInput {
-    private int m_bitbuf;   /* bit buffer */
+    /* size of the block read from the input stream at once */
+    static final int DEFAULT_BUFFER_SIZE = 1024 * 8;
+
+    private long m_bitbuf;  /* bit buffer */
     private int m_bitcnt;   /* number of bits in bit buffer */
 
-    private int m_left;     /* available input at in */
-    private int m_in;       /* read input location */
+    private final byte[] m_buf; /* bytes read from the input stream */
+    private int m_left;     /* available input at m_in */
+    private int m_in;       /* read input location in m_buf */
 
     private InputStream m_input;    /* input stream provided by user */
+    private long m_total;           /* bytes read from the input stream */
+
+    BlastStats stats;               /* statistics, null if off */
 
+    /**
+     * Creates a <code>BlastInput</code> reading blocks of the default size.
+     *
+     * @param m_input the input stream
+     */
     public BlastInput(InputStream m_input) {
+        this(m_input, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a <code>BlastInput</code> reading blocks of at most
+     * <code>bufferSize</code> bytes.
+     * <p>
+     * Input is read ahead in blocks, so the underlying stream may be consumed
+     * past the end of the compressed data.
+     *
+     * @param m_input    the input stream
+     * @param bufferSize the input buffer size
+     */
+    public BlastInput(InputStream m_input, int bufferSize) {
+        this.m_input = m_input;
+        this.m_buf = new byte[bufferSize];
+    }
+
+    /**
+     * Resets the bit and input buffers to read from another input stream.
+     *
+     * @param m_input the input stream
+     */
+    public void reset(InputStream m_input) {
         this.m_input = m_input;
+        m_bitbuf = 0;
+        m_bitcnt = m_left = m_in = 0;
+        m_total = 0;
+    }
+
+    /**
+     * Returns the number of bytes read from the input stream since it was
+     * set, which may go past the end of the compressed data.
+     *
+     * @return the number of bytes read
+     */
+    public long getTotalIn() {
+        return m_total;
     }
 
     /**
-     * Return need bits from the input stream.  This always leaves less than
-     * eight bits in the buffer.  bits() works properly for need == 0.
+     * Load bytes into the bit buffer until there are at least need bits in
+     * it or the input is exhausted.  Whenever it needs to load, the bit
+     * buffer is topped up to at least 57 bits, so most calls find the bits
+     * they need already loaded.  The input stream is only read when the
+     * input buffer is empty.
+     *
+     * @param need number of bits required, at most 57
+     * @return <code>true</code> if there are at least need bits available
+     * @throws IOException if an I/O error occurs.
+     */
+    boolean fill(int need) throws IOException {
+        while (m_bitcnt < need) {
+            if (m_left == 0 && !load())
+                return false;
+
+            long bitbuf = m_bitbuf;
+            int bitcnt = m_bitcnt;
+            int in = m_in;
+            int end = in + Math.min(m_left, (63 - bitcnt) >>> 3);
+            while (in < end) {
+                bitbuf |= (m_buf[in++] & 0xffL) << bitcnt; /* load eight bits */
+                bitcnt += 8;
+            }
+
+            m_left -= in - m_in;
+            m_in = in;
+            m_bitbuf = bitbuf;
+            m_bitcnt = bitcnt;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the bit buffer without consuming it.  Only the bits made
+     * available by a successful <code>fill()</code> are meaningful.
+     *
+     * @return the bit buffer, next bit at the bottom
+     */
+    long peek() {
+        return m_bitbuf;
+    }
+
+    /**
+     * Consume bits previously returned by <code>peek()</code>.
+     *
+     * @param len number of bits to drop
+     */
+    void drop(int len) {
+        m_bitbuf >>>= len;
+        m_bitcnt -= len;
+    }
+
+    /**
+     * Read the next block from the input stream into the input buffer.
+     *
+     * @return <code>false</code> if the end of the input stream is reached
+     * @throws IOException if an I/O error occurs.
+     */
+    private boolean load() throws IOException {
+        int len;
+        BlastStats stats = this.stats;
+        if (stats != null) {
+            long start = System.nanoTime();
+            do {
+                len = m_input.read(m_buf, 0, m_buf.length);
+            } while (len == 0);
+            stats.read(len, System.nanoTime() - start);
+        } else {
+            do {
+                len = m_input.read(m_buf, 0, m_buf.length);
+            } while (len == 0);
+        }
+
+        m_in = 0;
+        m_left = Math.max(len, 0);
+        m_total += m_left;
+
+        return len > 0;
+    }
+
+    /**
+     * Return need bits from the input stream.  bits() works properly for
+     * need == 0.
      * <p>
      * Format notes:
      * <p>
@@ -43,25 +174,14 @@ public class BlastInput {
      * @throws BlastFormatException if the compressed input is malformed.
      */
     public int bits(int need) throws IOException, BlastFormatException {
-        int val; /* bit accumulator */
+        /* load at least need bits into the bit buffer */
+        if (!fill(need))
+            throw new BlastFormatException(2); /* out of input */
 
-        /* load at least need bits into val */
-        val = m_bitbuf;
-        while (m_bitcnt < need) {
-            if (m_left == 0) {
-                m_in = m_input.read();
-                m_left = m_in == -1 ? 0 : 1;
-                if (m_left == 0) {
-                    throw new BlastFormatException(2); /* out of input */
-                }
-            }
-            val |= m_in << m_bitcnt; /* load eight bits */
-            m_left--;
-            m_bitcnt += 8;
-        }
+        int val = (int) m_bitbuf;
 
-        /* drop need bits and update buffer, always zero to seven bits left */
-        m_bitbuf = val >> need;
+        /* drop need bits and update buffer */
+        m_bitbuf >>>= need;
         m_bitcnt -= need;
 
         /* return need bits, zeroing the bits above that */
@@ -77,17 +197,14 @@ public class BlastInput {
      * Format notes:
      * <p>
      * - The codes as stored in the compressed data are bit-reversed relative to
-     * a simple integer ordering of codes of the same lengths.  Hence below the
-     * bits are pulled from the compressed data one at a time and used to
-     * build the code value reversed from what is in the stream in order to
-     * permit simple integer comparisons for decoding.
+     * a simple integer ordering of codes of the same lengths.  The lookup table
+     * in <code>Huffman</code> is indexed by the bits as they appear in the
+     * stream, so the next MAX_CODE_LEN bits resolve to a symbol and its length
+     * with one lookup, or two for codes longer than <code>ROOT_BITS</code>.
      * <p>
-     * - The first code for the shortest length is all ones.  Subsequent codes of
-     * the same length are simply integer decrements of the previous code.  When
-     * moving up a length, a one bit is appended to the code.  For a complete
-     * code, the last code of the longest length will be all zeros.  To support
-     * this ordering, the bits pulled during decoding are inverted to apply the
-     * more "natural" ordering starting with all zeros and incrementing.
+     * - Near the end of the input there may be less than MAX_CODE_LEN bits
+     * left.  The missing bits are taken as zero and the code is accepted only
+     * if it is not longer than the bits actually available.
      *
      * @param h Huffman table
      * @return status code
@@ -95,54 +212,17 @@ public class BlastInput {
      * @throws BlastFormatException if the compressed input is malformed.
      */
     public int decode(Huffman h) throws IOException, BlastFormatException {
-        int len; /* current number of bits in code */
-        int code; /* len bits being decoded */
-        int first; /* first code of length len */
-        int count; /* number of codes of length len */
-        int index; /* index of first code of length len in symbol table */
-        int bitbuf; /* bits from stream */
-        int left; /* bits left in read or left to process */
-        //short *read;        /* read number of codes */
-
-        bitbuf = m_bitbuf;
-        left = m_bitcnt;
-        code = first = index = 0;
-        len = 1;
-        int nextIndex = 1; // read = h->count + 1;
-        while (true) {
-            while (left-- != 0) {
-                code |= (bitbuf & 1) ^ 1; /* invert code */
-                bitbuf >>= 1;
-                //count = *read++;
-                count = h.m_count[nextIndex++];
-                if (code < first + count) { /* if length len, return symbol */
-                    m_bitbuf = bitbuf;
-                    m_bitcnt = (m_bitcnt - len) & 7;
-                    return h.m_symbol[index + (code - first)];
-                }
-                index += count; /* else update for read length */
-                first += count;
-                first <<= 1;
-                code <<= 1;
-                len++;
-            }
-            left = (MAX_CODE_LEN + 1) - len;
-            if (left == 0) {
-                break;
-            }
-            if (m_left == 0) {
-                m_in = m_input.read();
-                m_left = m_in == -1 ? 0 : 1;
-                if (m_left == 0) {
-                    throw new BlastFormatException(2); /* out of input */
-                }
-            }
-            bitbuf = m_in;
-            m_left--;
-            if (left > 8) {
-                left = 8;
-            }
-        }
-        return -9; /* ran out of codes */
+        fill(MAX_CODE_LEN);
+
+        int entry = h.lookup((int) m_bitbuf);
+
+        int len = entry == 0 ? MAX_CODE_LEN : entry & 15;
+        if (len > m_bitcnt)
+            throw new BlastFormatException(2); /* out of input */
+
+        m_bitbuf >>>= len;
+        m_bitcnt -= len;
+
+        return entry == 0 ? -9 : entry >> 4; /* ran out of codes */
     }
 }
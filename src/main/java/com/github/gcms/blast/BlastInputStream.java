@@ -2,20 +2,32 @@ package com.github.gcms.blast;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.zip.Checksum;
 
 /**
  * Implements a stream for uncompressing data in the PKWare Data Compression
  * Library (DCL) compressed format
  */
 public class BlastInputStream extends InputStream {
-    /* maximum window size */
+    /**
+     * Largest distance a match can reach back, i.e. the smallest buffer size
+     * a stream can be created with.  A stream with a buffer of this size
+     * keeps only the history needed for decoding and, for large reads,
+     * decodes straight into the caller's array.
+     */
+    public static final int WINDOW_SIZE = 1024 * 4;
+
+    /* default output buffer size */
     private static final int DEFAULT_BUFFER_SIZE = 1024 * 8;
 
+    private final BlastInput input;
     private final BlastDecoder decoder;
     private final BlastBuffer buffer;
-    private final InputStream in;
+    private final BlastStats stats;     /* null if off */
+    private InputStream in;
 
     private boolean hasMoreData = true;
+    private long totalOut;              /* bytes decoded */
 
     /**
      * Creates a new input stream with a default buffer size.
@@ -30,13 +42,70 @@ public class BlastInputStream extends InputStream {
      * Creates a new input stream with an specified buffer size.
      *
      * @param in         the input stream
-     * @param bufferSize the output buffer size
+     * @param bufferSize the output buffer size, at least <code>WINDOW_SIZE</code>
      * @param first      <code>true</code> to check distances (for first 4K)
+     * @throws IllegalArgumentException if the buffer is smaller than the window
      */
     public BlastInputStream(InputStream in, int bufferSize, boolean first) {
+        if (bufferSize < WINDOW_SIZE)
+            throw new IllegalArgumentException("Buffer smaller than the window size: " + bufferSize);
+
         this.in = in;
-        this.decoder = new BlastDecoder(new BlastInput(in), first);
+        this.input = new BlastInput(in);
+        this.decoder = new BlastDecoder(input, first);
         this.buffer = new BlastBuffer(bufferSize);
+        this.stats = BlastStats.create();
+        input.stats = stats;
+        decoder.stats = stats;
+    }
+
+    /**
+     * Resets the stream to uncompress data from another input stream,
+     * reusing the buffers of this one.  The previous input stream is not
+     * closed.
+     *
+     * @param in the input stream
+     */
+    public void reset(InputStream in) {
+        this.in = in;
+        input.reset(in);
+        decoder.reset();
+        buffer.reset();
+        hasMoreData = true;
+        totalOut = 0;
+        if (stats != null)
+            stats.clear();
+    }
+
+    /**
+     * Returns the decoding statistics of the stream, if they were enabled
+     * when it was created.
+     *
+     * @return the statistics, or <code>null</code> if off
+     * @see BlastStats#setEnabled(boolean)
+     */
+    public BlastStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns the number of compressed bytes read from the underlying
+     * stream, which may go past the end of the compressed data.
+     *
+     * @return the number of bytes read
+     */
+    public long getTotalIn() {
+        return input.getTotalIn();
+    }
+
+    /**
+     * Returns the number of uncompressed bytes decoded, including those not
+     * read yet from the internal buffer.
+     *
+     * @return the number of bytes decoded
+     */
+    public long getTotalOut() {
+        return totalOut;
     }
 
 
@@ -54,6 +123,10 @@ public class BlastInputStream extends InputStream {
 
     /**
      * Reads uncompressed data into an array of bytes.
+     * <p>
+     * Once the internal buffer is drained, requests for at least the buffer
+     * length are decoded straight into <code>buf</code>; only the last bytes
+     * are copied back to the internal buffer as history for the next read.
      *
      * @param buf    the buffer into which the data is read
      * @param offset the start offset in the destination array buf
@@ -64,29 +137,86 @@ public class BlastInputStream extends InputStream {
      */
     @Override
     public int read(byte[] buf, int offset, int len) throws IOException, BlastFormatException {
-        if (!checkBuffer())
-            return -1;
-
         int totalRead = 0;
-        while (totalRead < len && checkBuffer()) {
-            totalRead += buffer.read(buf, offset + totalRead, len - totalRead);
+        while (totalRead < len) {
+            if (buffer.isEmpty() && len - totalRead >= buffer.length()) {
+                if (!hasMoreData)
+                    break;
+
+                buffer.direct(buf, offset + totalRead, len - totalRead);
+                try {
+                    hasMoreData = fill();
+                } finally {
+                    totalRead += buffer.release();
+                }
+            } else if (checkBuffer()) {
+                totalRead += buffer.read(buf, offset + totalRead, len - totalRead);
+            } else {
+                break;
+            }
         }
 
-        return totalRead;
+        return totalRead > 0 || len == 0 ? totalRead : -1;
     }
 
     private boolean checkBuffer() throws IOException {
         if (buffer.isEmpty()) {
-            buffer.clear();
+            buffer.recycle();
 
-            while (hasMoreData && !buffer.isFull()) {
-                hasMoreData = decoder.read(buffer);
-            }
+            if (hasMoreData)
+                hasMoreData = fill();
         }
 
         return !buffer.isEmpty();
     }
 
+    /**
+     * Decodes the next chunk into the buffer, counting the bytes decoded and
+     * reporting the chunk to the statistics and flight recorder if they are
+     * on.
+     */
+    private boolean fill() throws IOException {
+        Object event = BlastEvents.beginChunk();
+        long in = event != null ? input.getTotalIn() : 0;
+        long start = stats != null ? System.nanoTime() : 0;
+        int size = buffer.size();
+
+        boolean more;
+        try {
+            more = decoder.fill(buffer);
+        } finally {
+            if (stats != null)
+                stats.fill(System.nanoTime() - start);
+        }
+
+        int out = buffer.size() - size;
+        totalOut += out;
+        if (event != null)
+            BlastEvents.endChunk(event, input.getTotalIn() - in, out);
+        if (!more && stats != null)
+            stats.publish();
+
+        return more;
+    }
+
+    /**
+     * Decodes the rest of the compressed data without handing it to the
+     * caller: each chunk is passed to <code>checksum</code> straight from the
+     * internal buffer.
+     *
+     * @param checksum the checksum updated with the uncompressed data
+     * @return the number of bytes decoded
+     * @throws IOException          if an I/O error has occurred
+     * @throws BlastFormatException if the compressed input is malformed.
+     */
+    public long drain(Checksum checksum) throws IOException, BlastFormatException {
+        long total = 0;
+        while (checkBuffer())
+            total += buffer.update(checksum);
+
+        return total;
+    }
+
     /**
      * Returns the number of bytes available in the current uncompressed
      * byte buffer.
@@ -104,6 +234,8 @@ public class BlastInputStream extends InputStream {
      * @throws IOException if an I/O error occurs.
      */
     public void close() throws IOException {
+        if (stats != null)
+            stats.publish();
         in.close();
     }
 }
@@ -0,0 +1,490 @@
+package com.github.gcms.blast;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import static com.github.gcms.blast.Blast.*;
+
+/**
+ * Implements a stream for compressing data in the PKWare Data Compression
+ * Library (DCL) compressed format, i.e. PKWare's "implode", readable by
+ * <code>BlastInputStream</code>.
+ * <p>
+ * Literals are written either as plain bytes (binary mode) or with the fixed
+ * literal Huffman code (ASCII mode), and the dictionary size is one of 1, 2
+ * or 4 KB.  Matches are found with hash chains over the dictionary; the
+ * compression level sets how many candidates are tried and whether lazy
+ * matching is used, trading speed for ratio like <code>Deflater</code>.
+ * Two byte matches, which the format only allows up to 256 bytes back, are
+ * looked for at the last occurrence of the pair only.
+ */
+public class BlastOutputStream extends OutputStream {
+    /**
+     * Compression level for fastest compression.
+     */
+    public static final int BEST_SPEED = 1;
+
+    /**
+     * Compression level for best compression.
+     */
+    public static final int BEST_COMPRESSION = 9;
+
+    /**
+     * Default compression level.
+     */
+    public static final int DEFAULT_LEVEL = 5;
+
+    /**
+     * Default dictionary size, the largest the format allows.
+     */
+    public static final int DEFAULT_DICTIONARY_SIZE = BlastInputStream.WINDOW_SIZE;
+
+    /* max chain length, lazy matching, nice match length and max length of
+     * matches whose positions are all inserted in the hash chains, by level */
+    private static final int[][] LEVELS = {
+            {4, 0, 16, 8},
+            {8, 0, 32, 16},
+            {16, 0, 64, 32},
+            {16, 1, 32, 518},
+            {32, 1, 64, 518},
+            {64, 1, 128, 518},
+            {128, 1, 256, 518},
+            {512, 1, 518, 518},
+            {2048, 1, 518, 518}
+    };
+
+    private static final int MIN_MATCH = 3;         /* shortest match in the hash chains */
+    private static final int MAX_SHORT_DISTANCE = 256;  /* farthest two byte match */
+    private static final int MAX_MATCH = BlastDecoder.MAX_MATCH_LENGTH;
+
+    private static final int HASH_BITS = 13;
+    private static final int SHORT_HASH_BITS = 12;
+    private static final int WINDOW_MASK = BlastInputStream.WINDOW_SIZE - 1;
+
+    private static final int OUTPUT_BUFFER_SIZE = 1024 * 8;
+    private static final int INPUT_BUFFER_SIZE = 1024 * 64;
+
+    /* length code for each match length */
+    private static final byte[] LENGTH_SYMBOL = new byte[MAX_MATCH + 1];
+
+    static {
+        for (int symbol = 0; symbol < BASE.length; symbol++) {
+            for (int i = 0; i < 1 << EXTRA[symbol]; i++) {
+                if (BASE[symbol] + i <= MAX_MATCH)
+                    LENGTH_SYMBOL[BASE[symbol] + i] = (byte) symbol;
+            }
+        }
+    }
+
+    private final OutputStream out;
+
+    private final boolean encoded;  /* true if literals are coded */
+    private final int dictSize;     /* log2(dictionary size) - 6 */
+    private final int maxDistance;  /* dictionary size */
+
+    private final int maxChain;     /* candidates tried per match search */
+    private final boolean lazy;     /* true to check for a longer match at the next byte */
+    private final int niceLength;   /* stop searching at a match this long */
+    private final int maxInsert;    /* insert all positions of matches up to this long */
+
+    private final byte[] window = new byte[INPUT_BUFFER_SIZE];
+    private int pos;                /* next byte to compress in window */
+    private int end;                /* end of the data in window */
+
+    private final int[] head = new int[1 << HASH_BITS];         /* last position for each hash */
+    private final int[] prev = new int[BlastInputStream.WINDOW_SIZE]; /* previous position with same hash */
+    private final int[] shortHead = new int[1 << SHORT_HASH_BITS];     /* last position for each byte pair */
+
+    private int pendingLength;      /* match found at pos by lazy matching, 0 if none */
+    private int pendingDistance;
+    private int matchDistance;      /* distance of the last match found */
+
+    private final byte[] buf = new byte[OUTPUT_BUFFER_SIZE];
+    private int bufPos;
+    private long bitbuf;            /* bit buffer */
+    private int bitcnt;             /* number of bits in bit buffer */
+
+    private final byte[] single = new byte[1];
+
+    private boolean started;
+    private boolean finished;
+    private long bytesRead;
+    private long bytesWritten;
+
+    /**
+     * Creates a new output stream in binary mode, with the default
+     * dictionary size and compression level.
+     *
+     * @param out the output stream
+     */
+    public BlastOutputStream(OutputStream out) {
+        this(out, false, DEFAULT_DICTIONARY_SIZE, DEFAULT_LEVEL);
+    }
+
+    /**
+     * Creates a new output stream.
+     *
+     * @param out      the output stream
+     * @param encoded  <code>true</code> to code literals (ASCII mode),
+     *                 <code>false</code> to write them as is (binary mode)
+     * @param dictSize the dictionary size: 1024, 2048 or 4096
+     * @param level    the compression level, from <code>BEST_SPEED</code> to
+     *                 <code>BEST_COMPRESSION</code>
+     */
+    public BlastOutputStream(OutputStream out, boolean encoded, int dictSize, int level) {
+        if (dictSize != 1024 && dictSize != 2048 && dictSize != 4096)
+            throw new IllegalArgumentException("Invalid dictionary size: " + dictSize);
+        if (level < BEST_SPEED || level > BEST_COMPRESSION)
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+
+        this.out = out;
+        this.encoded = encoded;
+        this.dictSize = Integer.numberOfTrailingZeros(dictSize) - 6;
+        this.maxDistance = dictSize;
+
+        int[] params = LEVELS[level - 1];
+        this.maxChain = params[0];
+        this.lazy = params[1] != 0;
+        this.niceLength = params[2];
+        this.maxInsert = params[3];
+
+        Arrays.fill(head, -1);
+        Arrays.fill(shortHead, -1);
+    }
+
+    /**
+     * Writes a byte of uncompressed data.
+     *
+     * @param b the byte
+     * @throws IOException if an I/O error has occurred
+     */
+    @Override
+    public void write(int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    /**
+     * Writes an array of bytes of uncompressed data.
+     *
+     * @param b   the data
+     * @param off the start offset of the data
+     * @param len the length of the data
+     * @throws IOException if an I/O error has occurred
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished)
+            throw new IOException("write beyond end of stream");
+        if (off < 0 || len < 0 || off > b.length - len)
+            throw new IndexOutOfBoundsException();
+
+        while (len > 0) {
+            if (end == window.length) {
+                compress(false);
+                slide();
+            }
+
+            int n = Math.min(len, window.length - end);
+            System.arraycopy(b, off, window, end, n);
+            end += n;
+            off += n;
+            len -= n;
+            bytesRead += n;
+        }
+    }
+
+    /**
+     * Compresses the remaining data and writes the end code, without closing
+     * the underlying stream.
+     *
+     * @throws IOException if an I/O error has occurred
+     */
+    public void finish() throws IOException {
+        if (finished)
+            return;
+
+        compress(true);
+
+        /* end code: length 519 */
+        putBits(1, 1);
+        putCode(LENCODE, 15);
+        putBits(519 - BASE[15], EXTRA[15]);
+
+        /* pad the last byte */
+        putBits(0, -bitcnt & 7);
+        flushBits();
+        flushBuffer();
+        finished = true;
+    }
+
+    /**
+     * Writes the compressed data produced so far to the underlying stream
+     * and flushes it.  The DCL format has no way to mark a flush point, so
+     * data still waiting for more input to be compressed is not written.
+     *
+     * @throws IOException if an I/O error has occurred
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Finishes the compressed data and closes the underlying stream.
+     *
+     * @throws IOException if an I/O error has occurred
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Returns the number of uncompressed bytes written so far.
+     *
+     * @return the number of uncompressed bytes
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Returns the number of compressed bytes produced so far.
+     *
+     * @return the number of compressed bytes
+     */
+    public long getBytesWritten() {
+        return bytesWritten + bufPos;
+    }
+
+    /**
+     * Compress the data in the window.  Unless flushing, data is only
+     * compressed while the longest possible match, and the match at the next
+     * byte for lazy matching, fit in the data available.
+     */
+    private void compress(boolean flush) throws IOException {
+        if (!started) {
+            putBits(encoded ? 1 : 0, 8);
+            putBits(dictSize, 8);
+            started = true;
+        }
+
+        int margin = flush ? 0 : MAX_MATCH + 1;
+        while (end - pos > margin) {
+            int length = pendingLength;
+            int distance = pendingDistance;
+            pendingLength = 0;
+            if (length == 0) {
+                length = findMatch(pos);
+                distance = matchDistance;
+            }
+
+            if (length < 2 || !worthMatch(pos, length, distance)) {
+                putLiteral(window[pos] & 0xff);
+                insert(pos++);
+                continue;
+            }
+
+            insert(pos);
+            if (lazy && length < niceLength) {
+                int next = findMatch(pos + 1);
+                if (next > length && worthMatch(pos + 1, next, matchDistance)) {
+                    putLiteral(window[pos++] & 0xff);
+                    pendingLength = next;
+                    pendingDistance = matchDistance;
+                    continue;
+                }
+            }
+
+            putMatch(length, distance);
+            if (length <= maxInsert) {
+                for (int i = 1; i < length; i++)
+                    insert(pos + i);
+            }
+            pos += length;
+        }
+    }
+
+    /**
+     * Find the longest match for the data at <code>p</code> in the hash chain.
+     *
+     * @return the match length, less than two if there is none; the distance
+     * is left in matchDistance.
+     */
+    private int findMatch(int p) {
+        int maxLength = Math.min(MAX_MATCH, end - p);
+        if (maxLength < MIN_MATCH)
+            return findShortMatch(p, maxLength);
+
+        byte[] window = this.window;
+        int limit = p - maxDistance;
+        int chain = maxChain;
+        int best = MIN_MATCH - 1;
+
+        int candidate = head[hash(p)];
+        while (candidate >= limit && candidate >= 0 && chain-- > 0) {
+            if (window[candidate + best] == window[p + best]
+                    && window[candidate] == window[p]
+                    && window[candidate + 1] == window[p + 1]) {
+                int length = 2;
+                while (length < maxLength && window[candidate + length] == window[p + length])
+                    length++;
+
+                if (length > best) {
+                    best = length;
+                    matchDistance = p - candidate;
+                    if (length >= niceLength || length == maxLength)
+                        break;
+                }
+            }
+            candidate = prev[candidate & WINDOW_MASK];
+        }
+
+        return best < MIN_MATCH ? findShortMatch(p, maxLength) : best;
+    }
+
+    /**
+     * Check for a two byte match at the last occurrence of the pair at
+     * <code>p</code>.
+     */
+    private int findShortMatch(int p, int maxLength) {
+        if (maxLength < 2)
+            return 0;
+
+        int candidate = shortHead[shortHash(p)];
+        if (candidate < 0 || p - candidate > MAX_SHORT_DISTANCE
+                || window[candidate] != window[p] || window[candidate + 1] != window[p + 1])
+            return 0;
+
+        matchDistance = p - candidate;
+        return 2;
+    }
+
+    /**
+     * Check if a match takes less bits than writing its bytes as literals.
+     * Matches longer than eight bytes always do.
+     */
+    private boolean worthMatch(int p, int length, int distance) {
+        if (length > 8)
+            return true;
+
+        int literals = 0;
+        for (int i = 0; i < length; i++)
+            literals += encoded ? 1 + (LITCODE.m_code[window[p + i] & 0xff] & 15) : 9;
+
+        int symbol = LENGTH_SYMBOL[length];
+        int shift = length == 2 ? 2 : dictSize;
+        int match = 1 + (LENCODE.m_code[symbol] & 15) + EXTRA[symbol]
+                + (DISTCODE.m_code[(distance - 1) >> shift] & 15) + shift;
+
+        return match < literals;
+    }
+
+    private int hash(int p) {
+        int key = (window[p] & 0xff) | (window[p + 1] & 0xff) << 8 | (window[p + 2] & 0xff) << 16;
+        return (key * 0x9E3779B1) >>> (32 - HASH_BITS);
+    }
+
+    private int shortHash(int p) {
+        int key = (window[p] & 0xff) | (window[p + 1] & 0xff) << 8;
+        return (key * 0x9E3779B1) >>> (32 - SHORT_HASH_BITS);
+    }
+
+    private void insert(int p) {
+        if (end - p < MIN_MATCH) {
+            if (end - p == 2)
+                shortHead[shortHash(p)] = p;
+            return;
+        }
+
+        shortHead[shortHash(p)] = p;
+        int h = hash(p);
+        prev[p & WINDOW_MASK] = head[h];
+        head[h] = p;
+    }
+
+    /**
+     * Move the last part of the window, which holds the dictionary and the
+     * data not compressed yet, to its beginning.  The window moves by a
+     * multiple of the hash chain size, so positions keep their chain entries.
+     */
+    private void slide() {
+        int delta = (pos - maxDistance) & ~WINDOW_MASK;
+        if (delta <= 0)
+            return;
+
+        System.arraycopy(window, delta, window, 0, end - delta);
+        pos -= delta;
+        end -= delta;
+
+        for (int i = 0; i < head.length; i++)
+            head[i] = head[i] >= delta ? head[i] - delta : -1;
+        for (int i = 0; i < prev.length; i++)
+            prev[i] = prev[i] >= delta ? prev[i] - delta : -1;
+        for (int i = 0; i < shortHead.length; i++)
+            shortHead[i] = shortHead[i] >= delta ? shortHead[i] - delta : -1;
+    }
+
+    private void putLiteral(int symbol) throws IOException {
+        if (encoded) {
+            putBits(0, 1);
+            putCode(LITCODE, symbol);
+        } else {
+            putBits(symbol << 1, 9);
+        }
+    }
+
+    private void putMatch(int length, int distance) throws IOException {
+        int symbol = LENGTH_SYMBOL[length];
+        putBits(1, 1);
+        putCode(LENCODE, symbol);
+        putBits(length - BASE[symbol], EXTRA[symbol]);
+
+        int shift = length == 2 ? 2 : dictSize;
+        distance--;
+        putCode(DISTCODE, distance >> shift);
+        putBits(distance & ((1 << shift) - 1), shift);
+    }
+
+    private void putCode(Huffman h, int symbol) throws IOException {
+        int code = h.m_code[symbol];
+        putBits(code >>> 4, code & 15);
+    }
+
+    /**
+     * Append bits to the bit buffer, writing whole bytes once there are at
+     * least 32 bits in it.
+     */
+    private void putBits(int bits, int len) throws IOException {
+        bitbuf |= (long) bits << bitcnt;
+        bitcnt += len;
+        if (bitcnt >= 32)
+            flushBits();
+    }
+
+    private void flushBits() throws IOException {
+        while (bitcnt >= 8) {
+            if (bufPos == buf.length)
+                flushBuffer();
+
+            buf[bufPos++] = (byte) bitbuf;
+            bitbuf >>>= 8;
+            bitcnt -= 8;
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (bufPos > 0) {
+            out.write(buf, 0, bufPos);
+            bytesWritten += bufPos;
+            bufPos = 0;
+        }
+    }
+}
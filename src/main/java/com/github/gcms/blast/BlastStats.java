@@ -0,0 +1,373 @@
+package com.github.gcms.blast;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decoding statistics of a <code>BlastInputStream</code> or a
+ * <code>BlastChannel</code>: literals and matches, histograms of match
+ * lengths and distances, bytes in and out, and the time spent blocked reading
+ * the underlying stream versus decoding.  An <code>Exploder</code> used on
+ * its own is not counted.
+ * <p>
+ * Statistics are off by default and then cost nothing but a test of a null
+ * field.  They are turned on for the streams created afterwards by
+ * <code>setEnabled(true)</code> or the system property
+ * <code>com.github.gcms.blast.stats=true</code>, which also register the
+ * totals of all streams as a <code>BlastStatsMXBean</code>:
+ * <pre>
+ * BlastStats.setEnabled(true);
+ * BlastInputStream in = new BlastInputStream(compressed);
+ * ...
+ * BlastStats stats = in.getStats();
+ * </pre>
+ * The counters of a stream are not thread-safe, like the stream itself.
+ */
+public final class BlastStats {
+    /* buckets of the histograms: bucket i counts values in [2^(i-1), 2^i) */
+    static final int HISTOGRAM_SIZE = 16;
+
+    private static final String OBJECT_NAME = "com.github.gcms.blast:type=BlastStats";
+
+    private static volatile boolean enabled = Boolean.getBoolean("com.github.gcms.blast.stats");
+
+    private static final Totals TOTALS = new Totals();
+
+    static {
+        if (enabled)
+            register();
+    }
+
+    private boolean encoded;
+    private int dictSize;
+    private long bytesIn;
+    private long literals;
+    private long matches;
+    private long matchBytes;
+    private long readNanos;
+    private long fillNanos;         /* time in the decoder, including reads */
+    private final long[] lengths = new long[HISTOGRAM_SIZE];
+    private final long[] distances = new long[HISTOGRAM_SIZE];
+    private boolean headerRead;
+    private boolean published;      /* added to the totals */
+
+    /**
+     * Turns statistics on or off for the streams created afterwards.
+     * Turning them on registers the totals with the platform MBean server.
+     *
+     * @param on <code>true</code> to collect statistics
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+        if (on)
+            register();
+    }
+
+    /**
+     * Returns <code>true</code> if new streams collect statistics.
+     *
+     * @return <code>true</code> if statistics are on
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the totals of all streams, also available through JMX.
+     *
+     * @return the totals
+     */
+    public static BlastStatsMXBean getTotals() {
+        return TOTALS;
+    }
+
+    /* statistics for a new stream, null if off */
+    static BlastStats create() {
+        return enabled ? new BlastStats() : null;
+    }
+
+    private static synchronized void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(TOTALS, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // registered already
+        } catch (JMException | SecurityException e) {
+            // statistics are still collected, without JMX
+        }
+    }
+
+    void header(boolean encoded, int dictSize) {
+        this.encoded = encoded;
+        this.dictSize = dictSize;
+        this.headerRead = true;
+    }
+
+    void literal() {
+        literals++;
+    }
+
+    void match(int length, int distance) {
+        matches++;
+        matchBytes += length;
+        lengths[bucket(length)]++;
+        distances[bucket(distance)]++;
+    }
+
+    void read(int bytes, long nanos) {
+        bytesIn += Math.max(bytes, 0);
+        readNanos += nanos;
+    }
+
+    void fill(long nanos) {
+        fillNanos += nanos;
+    }
+
+    private static int bucket(int value) {
+        return Math.min(32 - Integer.numberOfLeadingZeros(value), HISTOGRAM_SIZE - 1);
+    }
+
+    /**
+     * Adds the counters to the totals, once.
+     */
+    void publish() {
+        if (published || !headerRead)
+            return;
+
+        published = true;
+        TOTALS.add(this);
+    }
+
+    /**
+     * Publishes the counters and sets them to zero, for a reset stream.
+     */
+    void clear() {
+        publish();
+        headerRead = published = false;
+        bytesIn = literals = matches = matchBytes = readNanos = fillNanos = 0;
+        Arrays.fill(lengths, 0);
+        Arrays.fill(distances, 0);
+    }
+
+    /**
+     * Returns <code>true</code> if the stream has coded literals (ASCII
+     * mode), once its header is read.
+     *
+     * @return <code>true</code> in ASCII mode
+     */
+    public boolean isEncoded() {
+        return encoded;
+    }
+
+    /**
+     * Returns the dictionary size of the stream, once its header is read.
+     *
+     * @return 1024, 2048 or 4096, or 0 before the header is read
+     */
+    public int getDictionarySize() {
+        return headerRead ? 1 << (dictSize + 6) : 0;
+    }
+
+    /**
+     * Returns the number of compressed bytes read from the underlying
+     * stream, which may go past the end of the compressed data.
+     *
+     * @return the number of bytes read
+     */
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    /**
+     * Returns the number of uncompressed bytes decoded.
+     *
+     * @return the number of bytes decoded
+     */
+    public long getBytesOut() {
+        return literals + matchBytes;
+    }
+
+    /**
+     * Returns the number of literals decoded.
+     *
+     * @return the number of literals
+     */
+    public long getLiterals() {
+        return literals;
+    }
+
+    /**
+     * Returns the number of matches decoded.
+     *
+     * @return the number of matches
+     */
+    public long getMatches() {
+        return matches;
+    }
+
+    /**
+     * Returns the number of bytes copied by matches.
+     *
+     * @return the total match length
+     */
+    public long getMatchBytes() {
+        return matchBytes;
+    }
+
+    /**
+     * Returns the time spent blocked reading the underlying stream.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getReadTime() {
+        return readNanos;
+    }
+
+    /**
+     * Returns the time spent decoding, excluding reads of the underlying
+     * stream.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getDecodeTime() {
+        return Math.max(fillNanos - readNanos, 0);
+    }
+
+    /**
+     * Returns the histogram of match lengths: element i counts the matches
+     * of length 2^(i-1) to 2^i - 1, e.g. element 2 those of length 2 or 3.
+     *
+     * @return a copy of the counts
+     */
+    public long[] getMatchLengthHistogram() {
+        return lengths.clone();
+    }
+
+    /**
+     * Returns the histogram of match distances: element i counts the
+     * matches reaching 2^(i-1) to 2^i - 1 bytes back.
+     *
+     * @return a copy of the counts
+     */
+    public long[] getMatchDistanceHistogram() {
+        return distances.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "BlastStats{in=" + bytesIn + ", out=" + getBytesOut() + ", literals=" + literals
+                + ", matches=" + matches + ", readTime=" + readNanos + "ns, decodeTime=" + getDecodeTime() + "ns}";
+    }
+
+    /**
+     * Totals of all streams.
+     */
+    private static class Totals implements BlastStatsMXBean {
+        private final LongAdder streams = new LongAdder();
+        private final LongAdder codedStreams = new LongAdder();
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder literals = new LongAdder();
+        private final LongAdder matches = new LongAdder();
+        private final LongAdder matchBytes = new LongAdder();
+        private final LongAdder readNanos = new LongAdder();
+        private final LongAdder decodeNanos = new LongAdder();
+        private final AtomicLongArray lengths = new AtomicLongArray(HISTOGRAM_SIZE);
+        private final AtomicLongArray distances = new AtomicLongArray(HISTOGRAM_SIZE);
+
+        void add(BlastStats stats) {
+            streams.increment();
+            if (stats.encoded)
+                codedStreams.increment();
+            bytesIn.add(stats.bytesIn);
+            literals.add(stats.literals);
+            matches.add(stats.matches);
+            matchBytes.add(stats.matchBytes);
+            readNanos.add(stats.readNanos);
+            decodeNanos.add(stats.getDecodeTime());
+            for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+                if (stats.lengths[i] != 0)
+                    lengths.addAndGet(i, stats.lengths[i]);
+                if (stats.distances[i] != 0)
+                    distances.addAndGet(i, stats.distances[i]);
+            }
+        }
+
+        @Override
+        public long getStreams() {
+            return streams.sum();
+        }
+
+        @Override
+        public long getCodedStreams() {
+            return codedStreams.sum();
+        }
+
+        @Override
+        public long getBytesIn() {
+            return bytesIn.sum();
+        }
+
+        @Override
+        public long getBytesOut() {
+            return literals.sum() + matchBytes.sum();
+        }
+
+        @Override
+        public long getLiterals() {
+            return literals.sum();
+        }
+
+        @Override
+        public long getMatches() {
+            return matches.sum();
+        }
+
+        @Override
+        public long getMatchBytes() {
+            return matchBytes.sum();
+        }
+
+        @Override
+        public long getReadTime() {
+            return readNanos.sum();
+        }
+
+        @Override
+        public long getDecodeTime() {
+            return decodeNanos.sum();
+        }
+
+        @Override
+        public long[] getMatchLengthHistogram() {
+            return toArray(lengths);
+        }
+
+        @Override
+        public long[] getMatchDistanceHistogram() {
+            return toArray(distances);
+        }
+
+        private static long[] toArray(AtomicLongArray array) {
+            long[] counts = new long[array.length()];
+            for (int i = 0; i < counts.length; i++)
+                counts[i] = array.get(i);
+
+            return counts;
+        }
+
+        @Override
+        public void reset() {
+            for (LongAdder adder : new LongAdder[]{streams, codedStreams, bytesIn, literals, matches, matchBytes,
+                    readNanos, decodeNanos})
+                adder.reset();
+            for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+                lengths.set(i, 0);
+                distances.set(i, 0);
+            }
+        }
+    }
+}
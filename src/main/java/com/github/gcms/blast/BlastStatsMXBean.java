@@ -0,0 +1,96 @@
+package com.github.gcms.blast;
+
+/**
+ * Decoding statistics of all the streams of the JVM, registered as
+ * <code>com.github.gcms.blast:type=BlastStats</code> once statistics are
+ * enabled.  Streams add their counters when they reach the end of the data,
+ * are reset or are closed.
+ *
+ * @see BlastStats
+ */
+public interface BlastStatsMXBean {
+
+    /**
+     * Returns the number of streams decoded.
+     *
+     * @return the number of streams
+     */
+    long getStreams();
+
+    /**
+     * Returns the number of streams with coded literals (ASCII mode).
+     *
+     * @return the number of streams in ASCII mode
+     */
+    long getCodedStreams();
+
+    /**
+     * Returns the number of compressed bytes read from the underlying streams.
+     *
+     * @return the number of bytes read
+     */
+    long getBytesIn();
+
+    /**
+     * Returns the number of uncompressed bytes decoded.
+     *
+     * @return the number of bytes decoded
+     */
+    long getBytesOut();
+
+    /**
+     * Returns the number of literals decoded.
+     *
+     * @return the number of literals
+     */
+    long getLiterals();
+
+    /**
+     * Returns the number of matches decoded.
+     *
+     * @return the number of matches
+     */
+    long getMatches();
+
+    /**
+     * Returns the number of bytes copied by matches.
+     *
+     * @return the total match length
+     */
+    long getMatchBytes();
+
+    /**
+     * Returns the time spent blocked reading the underlying streams.
+     *
+     * @return the time in nanoseconds
+     */
+    long getReadTime();
+
+    /**
+     * Returns the time spent decoding, excluding reads.
+     *
+     * @return the time in nanoseconds
+     */
+    long getDecodeTime();
+
+    /**
+     * Returns the histogram of match lengths, see
+     * <code>BlastStats.getMatchLengthHistogram</code>.
+     *
+     * @return the counts by power of two
+     */
+    long[] getMatchLengthHistogram();
+
+    /**
+     * Returns the histogram of match distances, see
+     * <code>BlastStats.getMatchDistanceHistogram</code>.
+     *
+     * @return the counts by power of two
+     */
+    long[] getMatchDistanceHistogram();
+
+    /**
+     * Sets all totals to zero.
+     */
+    void reset();
+}
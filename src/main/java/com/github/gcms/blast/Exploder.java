@@ -0,0 +1,422 @@
+package com.github.gcms.blast;
+
+import java.nio.ByteBuffer;
+
+import static com.github.gcms.blast.Blast.*;
+import static com.github.gcms.blast.BlastDecoder.MAX_SYMBOL_BITS;
+
+/**
+ * Decompresses data in the PKWare Data Compression Library (DCL) compressed
+ * format as it is pushed in, in the manner of <code>java.util.zip.Inflater</code>.
+ * <p>
+ * Compressed data is given with <code>setInput</code> and uncompressed data is
+ * taken with <code>explode</code>, which never blocks: when the input runs out
+ * in the middle of a symbol, it returns what has been decoded so far and
+ * <code>needsInput</code> becomes <code>true</code>.  Decoding resumes from
+ * the same bit once more input is given.
+ * <pre>
+ * Exploder exploder = new Exploder();
+ * exploder.setInput(chunk);
+ * while (!exploder.finished() &amp;&amp; !exploder.needsInput()) {
+ *     int n = exploder.explode(out);
+ *     ...
+ * }
+ * </pre>
+ * Only the last 4 KB of uncompressed data are kept, so an instance needs
+ * little memory regardless of the size of the data.
+ */
+public class Exploder {
+    private final BlastBuffer buffer = new BlastBuffer(BlastInputStream.WINDOW_SIZE);
+
+    private long bitbuf;            /* bit buffer */
+    private int bitcnt;             /* number of bits in bit buffer */
+
+    private byte[] input;           /* input array, if any */
+    private ByteBuffer inputBuffer; /* input byte buffer, if any */
+    private int inPos, inLimit;     /* input array bounds */
+
+    private BlastHeader header;     /* header information */
+    private boolean first = true;   /* true to check distances (for first 4K) */
+    private int copyDistance;       /* distance for copy */
+    private int copyLength;         /* length for copy */
+
+    private boolean finished;       /* end code decoded */
+    private boolean stalled = true; /* stopped in the middle of a symbol */
+
+    private long bytesLoaded;       /* input bytes loaded into bit buffer */
+    private long bytesDecoded;      /* bytes decoded to output or buffer */
+
+    BlastStats stats;               /* statistics, null if off */
+
+    /**
+     * Sets input data for decompression.  Any input left from the previous
+     * call is discarded, so this should only be called when
+     * <code>needsInput</code> returns <code>true</code>.
+     *
+     * @param b   the input data bytes
+     * @param off the start offset of the input data
+     * @param len the length of the input data
+     */
+    public void setInput(byte[] b, int off, int len) {
+        if (off < 0 || len < 0 || off > b.length - len)
+            throw new ArrayIndexOutOfBoundsException();
+
+        input = b;
+        inputBuffer = null;
+        inPos = off;
+        inLimit = off + len;
+    }
+
+    /**
+     * Sets input data for decompression.
+     *
+     * @param b the input data bytes
+     * @see #setInput(byte[], int, int)
+     */
+    public void setInput(byte[] b) {
+        setInput(b, 0, b.length);
+    }
+
+    /**
+     * Sets input data for decompression.  The data between the position and
+     * the limit of <code>in</code> is used as input, and the position is
+     * advanced as it is consumed.  Heap, direct and mapped buffers are all
+     * read in place.
+     *
+     * @param in the input data
+     * @see #setInput(byte[], int, int)
+     */
+    public void setInput(ByteBuffer in) {
+        input = null;
+        inputBuffer = in;
+    }
+
+    /**
+     * Returns the number of bytes of input not consumed yet.  Once
+     * <code>finished</code>, whole bytes already buffered past the end of the
+     * compressed data are counted as well, so the remaining bytes are always
+     * the last ones given as input.
+     *
+     * @return the number of bytes remaining in the input
+     */
+    public int getRemaining() {
+        int remaining = inputBuffer != null ? inputBuffer.remaining() : inLimit - inPos;
+
+        return finished ? remaining + (bitcnt >>> 3) : remaining;
+    }
+
+    /**
+     * Returns <code>true</code> if no more data can be decoded until more
+     * input is given.
+     *
+     * @return <code>true</code> if more input is needed
+     */
+    public boolean needsInput() {
+        return !finished && stalled && buffer.isEmpty() && getRemaining() == 0;
+    }
+
+    /**
+     * Returns <code>true</code> if the end of the compressed data has been
+     * reached and all decoded data has been returned.
+     *
+     * @return <code>true</code> if the end of the compressed data was reached
+     */
+    public boolean finished() {
+        return finished && buffer.isEmpty();
+    }
+
+    /**
+     * Returns the number of compressed bytes consumed so far.
+     *
+     * @return the number of compressed bytes
+     */
+    public long getBytesRead() {
+        return finished ? bytesLoaded - (bitcnt >>> 3) : bytesLoaded;
+    }
+
+    /**
+     * Returns the number of uncompressed bytes returned so far.
+     *
+     * @return the number of uncompressed bytes
+     */
+    public long getBytesWritten() {
+        return bytesDecoded - buffer.available();
+    }
+
+    /**
+     * Decompresses data into the given array.
+     *
+     * @param b   the buffer for the uncompressed data
+     * @param off the start offset of the data
+     * @param len the maximum number of uncompressed bytes
+     * @return the actual number of uncompressed bytes, 0 if more input is
+     * needed or the end of the compressed data was reached.
+     * @throws BlastFormatException if the compressed input is malformed.
+     */
+    public int explode(byte[] b, int off, int len) throws BlastFormatException {
+        if (off < 0 || len < 0 || off > b.length - len)
+            throw new ArrayIndexOutOfBoundsException();
+
+        int total = 0;
+        stalled = false;
+        while (total < len) {
+            if (!buffer.isEmpty()) {
+                total += buffer.read(b, off + total, len - total);
+            } else if (finished || stalled) {
+                break;
+            } else if (len - total >= buffer.length()) {
+                buffer.direct(b, off + total, len - total);
+                try {
+                    decode();
+                } finally {
+                    int n = buffer.release();
+                    bytesDecoded += n;
+                    total += n;
+                }
+            } else {
+                fillBuffer();
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Decompresses data into the given array.
+     *
+     * @param b the buffer for the uncompressed data
+     * @return the actual number of uncompressed bytes
+     * @throws BlastFormatException if the compressed input is malformed.
+     * @see #explode(byte[], int, int)
+     */
+    public int explode(byte[] b) throws BlastFormatException {
+        return explode(b, 0, b.length);
+    }
+
+    /**
+     * Decompresses data into the given buffer, from its position up to its
+     * limit.  The position is advanced by the number of bytes written.
+     *
+     * @param out the buffer for the uncompressed data
+     * @return the actual number of uncompressed bytes
+     * @throws BlastFormatException if the compressed input is malformed.
+     * @see #explode(byte[], int, int)
+     */
+    public int explode(ByteBuffer out) throws BlastFormatException {
+        if (out.hasArray()) {
+            int n = explode(out.array(), out.arrayOffset() + out.position(), out.remaining());
+            out.position(out.position() + n);
+            return n;
+        }
+
+        int total = 0;
+        stalled = false;
+        while (out.hasRemaining()) {
+            if (!buffer.isEmpty())
+                total += buffer.read(out);
+            else if (finished || stalled)
+                break;
+            else
+                fillBuffer();
+        }
+
+        return total;
+    }
+
+    /**
+     * Resets the exploder so a new stream can be decompressed.  Input is
+     * discarded as well.
+     */
+    public void reset() {
+        buffer.reset();
+        bitbuf = bitcnt = 0;
+        input = null;
+        inputBuffer = null;
+        inPos = inLimit = 0;
+        header = null;
+        first = stalled = true;
+        copyDistance = copyLength = 0;
+        finished = false;
+        bytesLoaded = bytesDecoded = 0;
+    }
+
+    /**
+     * Takes a checkpoint at the current position, from which decoding can be
+     * resumed with <code>restore</code>.  A checkpoint can only be taken once
+     * a full window has been returned and all decoded data has been returned.
+     *
+     * @return the checkpoint, or <code>null</code> if none can be taken here
+     */
+    BlastIndex.Checkpoint checkpoint() {
+        if (header == null || finished || !buffer.isEmpty() || bytesDecoded < BlastInputStream.WINDOW_SIZE)
+            return null;
+
+        byte[] window = new byte[BlastInputStream.WINDOW_SIZE];
+        buffer.window(window);
+
+        /* the bits left from a partly consumed byte are the low ones */
+        int partial = bitcnt & 7;
+        return new BlastIndex.Checkpoint(bytesDecoded, bytesLoaded - (bitcnt >>> 3),
+                (int) bitbuf & ((1 << partial) - 1), partial, copyDistance, copyLength, window);
+    }
+
+    /**
+     * Resumes decoding from a checkpoint.  Input must then be given from the
+     * checkpoint input offset.
+     *
+     * @param header     the header of the compressed data
+     * @param checkpoint the checkpoint
+     */
+    void restore(BlastHeader header, BlastIndex.Checkpoint checkpoint) {
+        reset();
+        this.header = header;
+        first = false;
+
+        bitbuf = checkpoint.bits;
+        bitcnt = checkpoint.bitCount;
+        copyDistance = checkpoint.copyDistance;
+        copyLength = checkpoint.copyLength;
+        bytesLoaded = checkpoint.input;
+        bytesDecoded = checkpoint.output;
+        buffer.restore(checkpoint.window);
+    }
+
+    BlastHeader getHeader() {
+        return header;
+    }
+
+    private void fillBuffer() throws BlastFormatException {
+        buffer.recycle();
+
+        int before = buffer.available();
+        decode();
+        bytesDecoded += buffer.available() - before;
+    }
+
+    /**
+     * Decode symbols until the buffer is full, the end code is reached or the
+     * input runs out in the middle of a symbol.
+     */
+    private void decode() throws BlastFormatException {
+        first = first && bytesDecoded < BlastInputStream.WINDOW_SIZE;
+
+        while (!buffer.isFull() && !finished) {
+            if (!step()) {
+                stalled = true;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Decode one symbol, or part of a copy, into the buffer.  Nothing is
+     * consumed unless all the bits of the symbol are available.
+     *
+     * @return <code>false</code> if more input is needed.
+     */
+    private boolean step() throws BlastFormatException {
+        if (copyLength > 0) {   // remaining bytes to copy
+            copyLength -= buffer.copy(copyDistance, copyLength);
+            return true;
+        }
+
+        load();
+
+        if (header == null) {
+            if (bitcnt < 16)
+                return false;
+
+            header = BlastHeader.create((int) bitbuf & 0xff, (int) (bitbuf >>> 8) & 0xff);
+            drop(16);
+            if (stats != null)
+                stats.header(header.encoded, header.dictSize);
+            return true;
+        }
+
+        if (bitcnt < 1)
+            return false;
+
+        long bits = bitbuf;
+        if ((bits & 1) == 0) {
+            /* literal */
+            int used = 9;
+            int symbol = (int) (bits >>> 1) & 0xff;
+            if (header.encoded) {
+                int entry = LITCODE.lookup((int) (bits >>> 1));
+                used = 1 + (entry & 15);
+                symbol = entry >> 4;
+            }
+            if (used > bitcnt)
+                return false;
+
+            drop(used);
+            buffer.put(symbol);
+            if (stats != null)
+                stats.literal();
+            return true;
+        }
+
+        /* length code and extra bits */
+        int entry = LENCODE.lookup((int) (bits >>> 1));
+        int symbol = entry >> 4;
+        int used = 1 + (entry & 15) + EXTRA[symbol];
+        if (used > bitcnt)
+            return false;
+
+        int len = BASE[symbol] + ((int) (bits >>> (used - EXTRA[symbol])) & ((1 << EXTRA[symbol]) - 1));
+        if (len == 519) {
+            drop(used);
+            finished = true; /* end code */
+            return true;
+        }
+
+        /* distance code and low bits */
+        int shift = len == 2 ? 2 : header.dictSize;
+        entry = DISTCODE.lookup((int) (bits >>> used));
+        used += (entry & 15) + shift;
+        if (used > bitcnt)
+            return false;
+
+        int distance = ((entry >> 4) << shift) + ((int) (bits >>> (used - shift)) & ((1 << shift) - 1)) + 1;
+        if (first && distance > buffer.size())
+            throw new BlastFormatException(-3); /* distance too far back */
+
+        drop(used);
+        if (stats != null)
+            stats.match(len, distance);
+        copyDistance = distance;
+        copyLength = len - buffer.copy(distance, len);
+        return true;
+    }
+
+    /**
+     * Load input bytes into the bit buffer, up to MAX_SYMBOL_BITS bits or
+     * until the input runs out.
+     */
+    private void load() {
+        if (bitcnt >= MAX_SYMBOL_BITS)
+            return;
+
+        int loaded;
+        if (inputBuffer != null) {
+            int n = Math.min(inputBuffer.remaining(), (63 - bitcnt) >>> 3);
+            for (loaded = 0; loaded < n; loaded++) {
+                bitbuf |= (inputBuffer.get() & 0xffL) << bitcnt;
+                bitcnt += 8;
+            }
+        } else {
+            int n = Math.min(inLimit - inPos, (63 - bitcnt) >>> 3);
+            for (loaded = 0; loaded < n; loaded++) {
+                bitbuf |= (input[inPos++] & 0xffL) << bitcnt;
+                bitcnt += 8;
+            }
+        }
+
+        bytesLoaded += loaded;
+    }
+
+    private void drop(int len) {
+        bitbuf >>>= len;
+        bitcnt -= len;
+    }
+}
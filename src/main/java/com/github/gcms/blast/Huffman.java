@@ -1,16 +1,38 @@
 package com.github.gcms.blast;
 
 
+import java.util.Arrays;
+
 import static com.github.gcms.blast.Blast.MAX_CODE_LEN;
 
 /**
  * Class to represent a Huffman table.
+ * <p>
+ * Besides the canonical count/symbol tables, a two level lookup table is
+ * built so a code can be resolved from the next bits in the stream without
+ * walking it one bit at a time. The root table is indexed by the next
+ * <code>ROOT_BITS</code> bits of the stream. Codes longer than that are
+ * resolved through a second table indexed by the remaining bits.
  */
 public class Huffman {
+    static final int ROOT_BITS = 8;                                 /* bits indexing the root table */
+    static final int ROOT_MASK = (1 << ROOT_BITS) - 1;
+    static final int SUB_BITS = MAX_CODE_LEN - ROOT_BITS;           /* bits indexing a second level table */
+    static final int SUB_MASK = (1 << SUB_BITS) - 1;
 
     short[] m_count;
     short[] m_symbol;
 
+    /*
+     * Lookup table entries: zero for an invalid code, positive for a symbol
+     * (symbol << 4 | code length) and negative for a link to a second level
+     * table (-offset of the table).
+     */
+    int[] m_table;
+
+    /* codes by symbol, for encoding: bits as written to the stream << 4 | code length */
+    int[] m_code;
+
     /**
      * Constructor.
      *
@@ -21,11 +43,12 @@ public class Huffman {
     public Huffman(int countSize, int symbolSize, int[] rep) {
         m_count = new short[countSize];
         m_symbol = new short[symbolSize];
+        m_code = new int[symbolSize];
         construct(rep, rep.length);
+        m_table = buildTable();
     }
 
 
-
     /**
      * Given a list of repeated code lengths rep[0..n-1], where each byte is a
      * count (high four bits + 1) and a code length (low four bits), generate the
@@ -109,4 +132,69 @@ public class Huffman {
 
         /* return zero for complete set, positive for incomplete set */
     }
+
+    /**
+     * Look up the code at the bottom of <code>bits</code>, which must hold at
+     * least the next MAX_CODE_LEN bits of the stream.
+     *
+     * @param bits next bits of the stream, first bit at the bottom
+     * @return symbol &lt;&lt; 4 | code length, or zero for an invalid code
+     */
+    int lookup(int bits) {
+        int entry = m_table[bits & ROOT_MASK];
+        if (entry < 0)
+            entry = m_table[-entry + ((bits >>> ROOT_BITS) & SUB_MASK)];
+
+        return entry;
+    }
+
+    /**
+     * Build the lookup table from the count and symbol tables.  The codes are
+     * assigned in the same order decode() walks them: the first code of each
+     * length follows the last code of the previous length, with all bits
+     * inverted and stored first bit first.  Each code is then written to
+     * every entry whose low bits match it, and recorded in the code table
+     * used for encoding.
+     *
+     * @return the lookup table
+     */
+    private int[] buildTable() {
+        int[] table = new int[1 << ROOT_BITS];
+        int code = 0;   /* len bits of the current code */
+        int index = 0;  /* index of the current symbol in the symbol table */
+
+        for (int len = 1; len <= MAX_CODE_LEN; len++) {
+            for (int count = m_count[len]; count > 0; count--, code++, index++) {
+                int bits = reverse(~code, len);
+                int entry = (m_symbol[index] << 4) | len;
+                m_code[m_symbol[index]] = (bits << 4) | len;
+
+                if (len <= ROOT_BITS) {
+                    for (int i = bits; i < table.length; i += 1 << len)
+                        table[i] = entry;
+                } else {
+                    int root = bits & ROOT_MASK;
+                    if (table[root] == 0) {
+                        table[root] = -table.length;
+                        table = Arrays.copyOf(table, table.length + (1 << SUB_BITS));
+                    }
+
+                    int offset = -table[root];
+                    for (int i = bits >>> ROOT_BITS; i <= SUB_MASK; i += 1 << (len - ROOT_BITS))
+                        table[offset + i] = entry;
+                }
+            }
+            code <<= 1;
+        }
+
+        return table;
+    }
+
+    /**
+     * Reverse the low <code>len</code> bits of <code>code</code>, so the first
+     * bit of the code lands on the least significant bit.
+     */
+    private static int reverse(int code, int len) {
+        return Integer.reverse(code) >>> (32 - len);
+    }
 }
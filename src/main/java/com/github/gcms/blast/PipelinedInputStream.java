@@ -0,0 +1,246 @@
+package com.github.gcms.blast;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Reads another stream ahead on a background thread, so decompression
+ * overlaps with the processing of the data already read.
+ * <p>
+ * A producer thread reads the wrapped stream, e.g. a
+ * <code>BlastInputStream</code> or a <code>DBCInputStream</code>, into a
+ * ring of <code>depth</code> buffers which the consumer drains.  The producer
+ * waits when all buffers are full, so at most <code>depth</code> buffers are
+ * read ahead.  An exception thrown by the wrapped stream is thrown by the
+ * consumer's <code>read</code> once the data before it has been read.
+ * <pre>
+ * try (InputStream in = new PipelinedInputStream(new DBCInputStream(file))) {
+ *     ...
+ * }
+ * </pre>
+ * The stream must be closed to stop the producer thread.  Like other
+ * streams, it must not be read from several threads at once.
+ */
+public class PipelinedInputStream extends InputStream {
+    /* default size of each buffer */
+    private static final int DEFAULT_BUFFER_SIZE = 1024 * 64;
+
+    /* default number of buffers */
+    private static final int DEFAULT_DEPTH = 4;
+
+    private static final ThreadFactory DEFAULT_THREAD_FACTORY = r -> {
+        Thread thread = new Thread(r, "blast-read-ahead");
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    /**
+     * Buffer passed between the producer and the consumer.
+     */
+    private static class Chunk {
+        final byte[] data;
+        int length;
+        boolean last;           /* end of the stream or error after the data */
+        Throwable error;        /* thrown by the wrapped stream */
+
+        Chunk(int size) {
+            this.data = new byte[size];
+        }
+    }
+
+    private final InputStream in;
+    private final BlockingQueue<Chunk> free;
+    private final BlockingQueue<Chunk> full;
+    private final Thread producer;
+
+    private Chunk chunk;        /* chunk being read, null if none */
+    private int pos;
+    private volatile boolean closed;
+
+    /**
+     * Creates a new stream reading ahead 4 buffers of 64 KB.
+     *
+     * @param in the stream to read ahead
+     */
+    public PipelinedInputStream(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE, DEFAULT_DEPTH, DEFAULT_THREAD_FACTORY);
+    }
+
+    /**
+     * Creates a new stream.
+     *
+     * @param in            the stream to read ahead
+     * @param bufferSize    the size of each buffer
+     * @param depth         the number of buffers, at least 2 for reading
+     *                      to overlap with processing
+     * @param threadFactory the factory of the producer thread, e.g. one of
+     *                      virtual threads where available
+     */
+    public PipelinedInputStream(InputStream in, int bufferSize, int depth, ThreadFactory threadFactory) {
+        if (bufferSize < 1 || depth < 1)
+            throw new IllegalArgumentException("Invalid buffer size or depth");
+
+        this.in = in;
+        this.free = new ArrayBlockingQueue<>(depth);
+        this.full = new ArrayBlockingQueue<>(depth);
+        for (int i = 0; i < depth; i++)
+            free.add(new Chunk(bufferSize));
+
+        this.producer = threadFactory.newThread(this::produce);
+        producer.start();
+    }
+
+    /**
+     * Fills free buffers until the end of the wrapped stream, an error or
+     * the stream is closed.
+     */
+    private void produce() {
+        try {
+            boolean last = false;
+            while (!closed && !last) {
+                Chunk chunk = free.take();
+                int filled = 0;
+                try {
+                    while (filled < chunk.data.length && !last) {
+                        int n = in.read(chunk.data, filled, chunk.data.length - filled);
+                        if (n < 0)
+                            last = true;
+                        else
+                            filled += n;
+                    }
+                } catch (Throwable e) {
+                    chunk.error = e;
+                    last = true;
+                }
+
+                chunk.length = filled;
+                chunk.last = last;
+                full.put(chunk);
+            }
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Takes the next chunk once the current one is read.
+     *
+     * @param partial <code>true</code> if data has been read by the call
+     *                already, to return <code>false</code> instead of throwing
+     *                an error of the producer, which is thrown by the next call
+     * @return <code>false</code> at the end of the stream
+     */
+    private boolean nextChunk(boolean partial) throws IOException {
+        if (closed)
+            throw new IOException("Stream closed");
+
+        while (chunk == null || pos == chunk.length) {
+            if (chunk != null) {
+                if (chunk.last) {
+                    if (chunk.error != null && !partial)
+                        throw error(chunk.error);
+                    return false;
+                }
+                free.add(chunk);
+            }
+
+            try {
+                chunk = full.take();
+            } catch (InterruptedException e) {
+                chunk = null;
+                Thread.currentThread().interrupt();
+                if (partial)
+                    return false;
+                throw new InterruptedIOException();
+            }
+            pos = 0;
+        }
+
+        return true;
+    }
+
+    /* rethrows an error of the producer, unchecked ones as they are */
+    private static IOException error(Throwable e) {
+        if (e instanceof IOException)
+            return (IOException) e;
+        if (e instanceof RuntimeException)
+            throw (RuntimeException) e;
+        if (e instanceof Error)
+            throw (Error) e;
+        return new IOException(e);
+    }
+
+    @Override
+    public int read() throws IOException {
+        return nextChunk(false) ? chunk.data[pos++] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off > b.length - len)
+            throw new IndexOutOfBoundsException();
+        if (len == 0)
+            return 0;
+
+        int total = 0;
+        while (total < len && nextChunk(total > 0)) {
+            int n = Math.min(len - total, chunk.length - pos);
+            System.arraycopy(chunk.data, pos, b, off + total, n);
+            pos += n;
+            total += n;
+
+            if (pos == chunk.length && full.isEmpty())
+                break;  /* return what is here rather than wait for the producer */
+        }
+
+        return total > 0 ? total : -1;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long total = 0;
+        while (total < n && nextChunk(total > 0)) {
+            int len = (int) Math.min(n - total, chunk.length - pos);
+            pos += len;
+            total += len;
+        }
+
+        return total;
+    }
+
+    /**
+     * Returns the number of bytes read ahead in the current buffer.
+     *
+     * @return the number of bytes which can be read without blocking
+     */
+    @Override
+    public int available() {
+        return chunk != null && !closed ? chunk.length - pos : 0;
+    }
+
+    /**
+     * Stops the producer thread, waiting for the read in progress to end,
+     * and closes the wrapped stream.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+
+        closed = true;
+        producer.interrupt();
+        try {
+            producer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            in.close();
+        }
+    }
+}
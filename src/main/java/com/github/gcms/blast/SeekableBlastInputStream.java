@@ -0,0 +1,184 @@
+package com.github.gcms.blast;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Implements a stream for uncompressing data in the PKWare Data Compression
+ * Library (DCL) compressed format, which can be positioned at any
+ * uncompressed offset.
+ * <p>
+ * <code>seek</code> resumes decompression from the nearest checkpoint of a
+ * <code>BlastIndex</code> before the offset, so at most about one checkpoint
+ * interval is decoded to reach it.  Without an index, or before the first
+ * checkpoint, decompression starts over from the beginning.
+ * <pre>
+ * BlastIndex index = BlastIndex.load(indexPath);
+ * try (SeekableBlastInputStream in = new SeekableBlastInputStream(FileChannel.open(path), index)) {
+ *     in.seek(offset);
+ *     ...
+ * }
+ * </pre>
+ */
+public class SeekableBlastInputStream extends InputStream {
+    /* size of the buffer decoded data is skipped into */
+    private static final int SKIP_BUFFER_SIZE = 1024 * 8;
+
+    private final SeekableByteChannel channel;
+    private final long start;               /* channel position of the compressed data */
+    private final BlastIndex index;
+
+    private final Exploder exploder = new Exploder();
+    private final ByteBuffer input = ByteBuffer.allocateDirect(BlastInput.DEFAULT_BUFFER_SIZE);
+    private final byte[] single = new byte[1];
+    private byte[] skipBuffer;
+
+    /**
+     * Creates a new stream decoding the compressed data from the current
+     * position of <code>channel</code>.
+     *
+     * @param channel the channel from which compressed data is read
+     * @param index   the index of the compressed data, or <code>null</code>
+     * @throws IOException if an I/O error occurs
+     */
+    public SeekableBlastInputStream(SeekableByteChannel channel, BlastIndex index) throws IOException {
+        this.channel = channel;
+        this.start = channel.position();
+        this.index = index;
+
+        input.flip();
+        exploder.setInput(input);
+    }
+
+    /**
+     * Returns the uncompressed offset the next byte is read from.
+     *
+     * @return the current offset
+     */
+    public long position() {
+        return exploder.getBytesWritten();
+    }
+
+    /**
+     * Positions the stream at an uncompressed offset.  Seeking past the end of
+     * the data positions the stream at its end.
+     *
+     * @param offset the uncompressed offset
+     * @throws IOException          if an I/O error has occurred
+     * @throws BlastFormatException if the compressed input is malformed.
+     */
+    public void seek(long offset) throws IOException {
+        if (offset < 0)
+            throw new IllegalArgumentException("Negative offset: " + offset);
+
+        long position = position();
+        BlastIndex.Checkpoint checkpoint = index != null ? index.find(offset) : null;
+        if (offset < position || checkpoint != null && checkpoint.output > position) {
+            if (checkpoint == null) {
+                exploder.reset();
+                channel.position(start);
+            } else {
+                exploder.restore(index.getHeader(), checkpoint);
+                channel.position(start + checkpoint.input);
+            }
+
+            input.clear();
+            input.flip();
+            exploder.setInput(input);
+        }
+
+        discard(offset - position());
+    }
+
+    /**
+     * Reads a byte of uncompressed data.
+     *
+     * @return the byte read, or -1 if end of compressed input is reached
+     * @throws IOException          if an I/O error has occurred
+     * @throws BlastFormatException if the compressed input is malformed.
+     */
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) == 1 ? single[0] & 0xff : -1;
+    }
+
+    /**
+     * Reads uncompressed data into an array of bytes.
+     *
+     * @param b   the buffer into which the data is read
+     * @param off the start offset in the destination array b
+     * @param len the maximum number of bytes read
+     * @return the actual number of bytes read, or -1 if the end of the compressed input is reached
+     * @throws IOException          if an I/O error has occurred
+     * @throws BlastFormatException if the compressed input is malformed.
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int total = 0;
+        while (total < len && !exploder.finished()) {
+            if (exploder.needsInput() && !load())
+                throw new BlastFormatException(2); /* out of input */
+
+            total += exploder.explode(b, off + total, len - total);
+        }
+
+        return total == 0 && len > 0 ? -1 : total;
+    }
+
+    /**
+     * Skips uncompressed data, resuming from a checkpoint if there is one
+     * before the target offset.
+     *
+     * @param n the number of bytes to skip
+     * @return the actual number of bytes skipped
+     * @throws IOException if an I/O error has occurred
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0)
+            return 0;
+
+        long position = position();
+        seek(position + n);
+        return position() - position;
+    }
+
+    private long discard(long n) throws IOException {
+        if (skipBuffer == null)
+            skipBuffer = new byte[SKIP_BUFFER_SIZE];
+
+        long total = 0;
+        while (total < n) {
+            int len = read(skipBuffer, 0, (int) Math.min(skipBuffer.length, n - total));
+            if (len < 0)
+                break;
+            total += len;
+        }
+
+        return total;
+    }
+
+    private boolean load() throws IOException {
+        int len;
+        input.clear();
+        do {
+            len = channel.read(input);
+        } while (len == 0);
+        input.flip();
+
+        exploder.setInput(input);
+        return len > 0;
+    }
+
+    /**
+     * Closes the channel passed to the constructor.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,306 @@
+package com.github.gcms.dbc;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Converts a directory tree of DBC files to DBF files, decoding several files
+ * at once.
+ * <pre>
+ * java -jar dbc-reader.jar [-j threads] [-b bufferKB] [-m memoryMB] [-f] source [target]
+ * </pre>
+ * Each <code>.dbc</code> file under <code>source</code> is written to the same
+ * relative path under <code>target</code> (by default, <code>source</code>
+ * itself) with a <code>.dbf</code> extension.  Outputs newer than their input
+ * are skipped unless <code>-f</code> is given.
+ * <p>
+ * Input files are mapped into memory and each worker decodes into its own
+ * buffer, which is written with a single <code>FileChannel</code> write when
+ * full, so the heap in use is the number of workers times the buffer size.
+ * The number of workers is lowered if needed to keep that within the memory
+ * limit.
+ */
+public class DBC2DBF {
+    /* default size of the buffer of each worker */
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    private final int threads;
+    private final int bufferSize;
+    private final boolean force;
+
+    private final ThreadLocal<ByteBuffer> buffers;
+
+    private final AtomicInteger converted = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private long elapsed;
+
+    /**
+     * Creates a converter with one worker per processor.
+     */
+    public DBC2DBF() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_BUFFER_SIZE, Long.MAX_VALUE, false);
+    }
+
+    /**
+     * Creates a converter.
+     *
+     * @param threads    the maximum number of files decoded at once
+     * @param bufferSize the size of the buffer of each worker
+     * @param maxMemory  the maximum number of bytes of buffers in use at once,
+     *                   at least <code>bufferSize</code>
+     * @param force      <code>true</code> to convert files even if up to date
+     * @throws IllegalArgumentException if a buffer does not fit in
+     *                                  <code>maxMemory</code>
+     */
+    public DBC2DBF(int threads, int bufferSize, long maxMemory, boolean force) {
+        if (threads < 1 || bufferSize < 1)
+            throw new IllegalArgumentException("Invalid number of threads or buffer size");
+        if (maxMemory < bufferSize)
+            throw new IllegalArgumentException("Buffer size larger than the memory limit: " + bufferSize);
+
+        this.threads = (int) Math.min(threads, maxMemory / bufferSize);
+        this.bufferSize = bufferSize;
+        this.force = force;
+        this.buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(this.bufferSize));
+    }
+
+    /**
+     * Converts all DBC files under <code>source</code>.  Errors are reported
+     * to <code>err</code> and do not stop the conversion of other files.
+     *
+     * @param source the directory searched for DBC files
+     * @param target the directory where DBF files are written
+     * @param err    the stream errors are reported to
+     * @return <code>true</code> if no file failed
+     * @throws IOException if <code>source</code> cannot be read
+     */
+    public boolean convert(Path source, Path target, PrintStream err) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(source)) {
+            files = walk.filter(p -> isDBC(p) && Files.isRegularFile(p)).collect(Collectors.toList());
+        }
+
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>(files.size());
+            for (Path file : files) {
+                Path output = target.resolve(source.relativize(file).toString());
+                results.add(executor.submit(() -> {
+                    convert(file, output.resolveSibling(dbfName(output)));
+                    return null;
+                }));
+            }
+
+            for (int i = 0; i < files.size(); i++) {
+                try {
+                    results.get(i).get();
+                } catch (ExecutionException e) {
+                    failed.incrementAndGet();
+                    err.println(files.get(i) + ": " + e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } finally {
+            executor.shutdownNow();
+            elapsed = System.nanoTime() - start;
+        }
+
+        return failed.get() == 0;
+    }
+
+    /**
+     * Converts one file, through a temporary file so an interrupted
+     * conversion is never taken as up to date.
+     */
+    private void convert(Path input, Path output) throws IOException {
+        if (!force && Files.exists(output)
+                && Files.getLastModifiedTime(output).compareTo(Files.getLastModifiedTime(input)) >= 0) {
+            skipped.incrementAndGet();
+            return;
+        }
+
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        Path temp = output.resolveSibling(output.getFileName() + ".tmp");
+
+        long written = 0;
+        try (DBCChannel in = DBCChannel.open(input);
+             FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = buffers.get();
+            buffer.clear();
+            while (in.read(buffer) != -1) {
+                if (!buffer.hasRemaining())
+                    written += drain(buffer, out);
+            }
+            written += drain(buffer, out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        bytesIn.addAndGet(Files.size(input));
+        bytesOut.addAndGet(written);
+        converted.incrementAndGet();
+    }
+
+    private static long drain(ByteBuffer buffer, FileChannel out) throws IOException {
+        buffer.flip();
+        long len = buffer.remaining();
+        while (buffer.hasRemaining())
+            out.write(buffer);
+        buffer.clear();
+
+        return len;
+    }
+
+    private static boolean isDBC(Path path) {
+        return path.getFileName().toString().toLowerCase().endsWith(".dbc");
+    }
+
+    /* replaces the extension, keeping its case */
+    private static String dbfName(Path dbc) {
+        String name = dbc.getFileName().toString();
+        String base = name.substring(0, name.length() - 1);
+
+        return base + (name.charAt(name.length() - 1) == 'C' ? 'F' : 'f');
+    }
+
+    /**
+     * Returns the number of files converted.
+     *
+     * @return the number of files converted
+     */
+    public int getConvertedCount() {
+        return converted.get();
+    }
+
+    /**
+     * Returns the number of files skipped as up to date.
+     *
+     * @return the number of files skipped
+     */
+    public int getSkippedCount() {
+        return skipped.get();
+    }
+
+    /**
+     * Returns the number of files which could not be converted.
+     *
+     * @return the number of failed files
+     */
+    public int getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Returns the size of the DBC files converted.
+     *
+     * @return the number of compressed bytes
+     */
+    public long getBytesRead() {
+        return bytesIn.get();
+    }
+
+    /**
+     * Returns the size of the DBF files written.
+     *
+     * @return the number of uncompressed bytes
+     */
+    public long getBytesWritten() {
+        return bytesOut.get();
+    }
+
+    /**
+     * Returns a summary of the conversions: files converted, skipped and
+     * failed, and throughput of compressed input and uncompressed output.
+     *
+     * @return the summary
+     */
+    public String getSummary() {
+        double seconds = Math.max(elapsed, 1) / 1e9;
+
+        return String.format("%d converted, %d skipped, %d failed in %.2f s: "
+                        + "%.1f MB/s in, %.1f MB/s out, %.1f files/s (%d threads)",
+                getConvertedCount(), getSkippedCount(), getFailedCount(), seconds,
+                getBytesRead() / seconds / 1e6, getBytesWritten() / seconds / 1e6,
+                getConvertedCount() / seconds, threads);
+    }
+
+    /**
+     * Runs the converter from the command line.
+     *
+     * @param args the command line arguments
+     * @throws IOException if the source directory cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int bufferSize = DEFAULT_BUFFER_SIZE;
+        long maxMemory = Long.MAX_VALUE;
+        boolean force = false;
+        List<String> paths = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-j":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "-b":
+                        bufferSize = Integer.parseInt(args[++i]) * 1024;
+                        break;
+                    case "-m":
+                        maxMemory = Long.parseLong(args[++i]) * 1024 * 1024;
+                        break;
+                    case "-f":
+                        force = true;
+                        break;
+                    default:
+                        if (args[i].startsWith("-"))
+                            throw new IllegalArgumentException(args[i]);
+                        paths.add(args[i]);
+                }
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            paths.clear();
+        }
+
+        if (paths.isEmpty() || paths.size() > 2 || threads < 1 || bufferSize < 1 || maxMemory < bufferSize) {
+            System.err.println("Usage: dbc2dbf [-j threads] [-b bufferKB] [-m memoryMB] [-f] source [target]");
+            System.exit(2);
+        }
+
+        Path source = Paths.get(paths.get(0));
+        Path target = paths.size() > 1 ? Paths.get(paths.get(1)) : source;
+
+        DBC2DBF converter = new DBC2DBF(threads, bufferSize, maxMemory, force);
+        boolean ok = converter.convert(source, target, System.err);
+        System.out.println(converter.getSummary());
+
+        System.exit(ok ? 0 : 1);
+    }
+}
@@ -0,0 +1,133 @@
+package com.github.gcms.dbc;
+
+import com.github.gcms.blast.BlastChannel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Implements a channel for reading DBC files, xBase files compressed in
+ * PKWare Data Compression Library (DCL) compressed format.  The DBF header is
+ * read first, followed by the uncompressed records.
+ */
+public class DBCChannel implements ReadableByteChannel {
+    private final ByteBuffer header;
+    private final BlastChannel body;
+    private Object event;       /* flight recorder event, null if off */
+
+    private DBCChannel(ByteBuffer header, BlastChannel body, Object event) {
+        this.header = header;
+        this.body = body;
+        this.event = event;
+    }
+
+    /**
+     * Creates a channel decoding a DBC file held in a buffer, from its
+     * position up to its limit.  The buffer may be direct or mapped, and is
+     * decoded in place.
+     *
+     * @param buffer the DBC file contents
+     * @return a new channel
+     * @throws DBCFormatException if the DBC header is incomplete
+     */
+    public static DBCChannel open(ByteBuffer buffer) throws DBCFormatException {
+        Object file = DBCEvents.beginFile();
+        Object event = DBCEvents.beginHeader();
+        byte[] header = DBCProcessor.read(buffer);
+        if (event != null)
+            DBCEvents.endHeader(event, header);
+
+        return new DBCChannel(ByteBuffer.wrap(header), new BlastChannel(buffer), file);
+    }
+
+    /**
+     * Creates a channel decoding a DBC file.  The file is mapped into memory,
+     * unless it is too large for a single mapping, in which case it is read
+     * through a <code>FileChannel</code>.
+     *
+     * @param path the DBC file
+     * @return a new channel
+     * @throws IOException if an I/O error occurs or the DBC header is incomplete
+     */
+    public static DBCChannel open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() <= Integer.MAX_VALUE)
+                return open(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            Object file = DBCEvents.beginFile();
+            Object event = DBCEvents.beginHeader();
+            byte[] header = new DBCProcessor(Channels.newInputStream(channel)).readHeader();
+            if (event != null)
+                DBCEvents.endHeader(event, header);
+
+            return new DBCChannel(ByteBuffer.wrap(header), new BlastChannel(channel), file);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads uncompressed data into the given buffer.
+     *
+     * @param dst the buffer into which the data is read
+     * @return the actual number of bytes read, or -1 if the end of the file
+     * is reached
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!header.hasRemaining())
+            return body.read(dst);
+
+        int len = Math.min(header.remaining(), dst.remaining());
+        ByteBuffer slice = header.duplicate();
+        slice.limit(slice.position() + len);
+        dst.put(slice);
+        header.position(header.position() + len);
+
+        return len;
+    }
+
+    /**
+     * Returns the number of bytes of the DBC file consumed so far: the DBF
+     * header, its CRC32 and the compressed data.
+     *
+     * @return the number of bytes consumed
+     */
+    long getTotalIn() {
+        return header.capacity() + 4 + body.getTotalIn();
+    }
+
+    /**
+     * Returns the number of bytes of the DBF file read so far.
+     *
+     * @return the number of bytes read
+     */
+    long getTotalOut() {
+        return header.position() + body.getTotalOut();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return body.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (event != null) {
+            DBCEvents.endFile(event, header.capacity(), body.getTotalIn(), body.getTotalOut());
+            event = null;
+        }
+
+        body.close();
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.gcms.dbc;
+
+/**
+ * Flight recorder events of <code>DBCInputStream</code>.  This version, for
+ * Java 8, records nothing; the jar carries another one for Java 11 and later,
+ * in <code>META-INF/versions/11</code>, which emits
+ * <code>com.github.gcms.dbc.Header</code> events for the header of each file
+ * and <code>com.github.gcms.dbc.File</code> events with the totals of each
+ * file when it is closed.
+ */
+final class DBCEvents {
+    private DBCEvents() {
+    }
+
+    /**
+     * Starts timing the parsing of a header, if header events are recorded.
+     *
+     * @return the event, or <code>null</code> if off
+     */
+    static Object beginHeader() {
+        return null;
+    }
+
+    /**
+     * Ends and commits a header event.
+     *
+     * @param event  the event returned by <code>beginHeader</code>
+     * @param header the DBF header read
+     */
+    static void endHeader(Object event, byte[] header) {
+    }
+
+    /**
+     * Starts timing a file, if file events are recorded.
+     *
+     * @return the event, or <code>null</code> if off
+     */
+    static Object beginFile() {
+        return null;
+    }
+
+    /**
+     * Ends and commits a file event.
+     *
+     * @param event        the event returned by <code>beginFile</code>
+     * @param headerLength the length of the DBF header, 0 if not read
+     * @param bodyIn       the compressed bytes read after the header
+     * @param bodyOut      the bytes decoded after the header
+     */
+    static void endFile(Object event, int headerLength, long bodyIn, long bodyOut) {
+    }
+}
@@ -1,6 +1,5 @@
 package com.github.gcms.dbc;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -8,34 +7,69 @@ import java.io.InputStream;
  * Reads data from DBF header in a DBC file.
  */
 class DBCHeaderReader extends InputStream {
-    private final InputStream source;
+    private InputStream source;
 
     DBCHeaderReader(InputStream source) {
         this.source = source;
     }
 
-    private InputStream input;
+    private byte[] header;
+    private int pos;
 
-    private InputStream getInput() throws IOException {
-        if (input == null)
-            input = new ByteArrayInputStream(DBCProcessor.read(source));
+    /**
+     * Resets the reader to read the header of another DBC file.
+     *
+     * @param source the input stream
+     */
+    void reset(InputStream source) {
+        this.source = source;
+        this.header = null;
+        this.pos = 0;
+    }
 
-        return input;
+    private byte[] getHeader() throws IOException {
+        if (header == null) {
+            Object event = DBCEvents.beginHeader();
+            header = DBCProcessor.read(source);
+            if (event != null)
+                DBCEvents.endHeader(event, header);
+        }
+
+        return header;
     }
 
     @Override
     public int read() throws IOException {
-        return getInput().read();
+        byte[] header = getHeader();
+
+        return pos < header.length ? header[pos++] & 0xff : -1;
     }
 
     @Override
     public int read(byte[] buf, int offset, int len) throws IOException {
-        return getInput().read(buf, offset, len);
+        byte[] header = getHeader();
+        if (pos >= header.length)
+            return -1;
+
+        len = Math.min(len, header.length - pos);
+        System.arraycopy(header, pos, buf, offset, len);
+        pos += len;
+
+        return len;
+    }
+
+    /**
+     * Returns the length of the DBF header, or 0 if it was not read.
+     *
+     * @return the header length
+     */
+    int getHeaderLength() {
+        return header != null ? header.length : 0;
     }
 
     @Override
     public int available() throws IOException {
-        return getInput().available();
+        return getHeader().length - pos;
     }
 
 }
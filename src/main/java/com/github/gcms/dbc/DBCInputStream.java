@@ -4,21 +4,158 @@ package com.github.gcms.dbc;
 import com.github.gcms.blast.BlastInputStream;
 
 import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.SequenceInputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
 
 /**
  * Implements a stream for reading DBC files, xBase files compressed in
  * PKWare Data Compression Library (DCL) compressed format
  */
 public class DBCInputStream extends FilterInputStream {
+    private DBCHeaderReader header;
+    private BlastInputStream body;
+
+    private boolean closed;
+    private Object event;       /* flight recorder event, null if off */
+    DBCInputStreamPool pool;    /* pool the stream returns to when closed */
+
     /**
      * Creates a new InputStream from the underlying stream
      *
      * @param is the input stream
      */
     public DBCInputStream(InputStream is) {
-        super(new SequenceInputStream(new DBCHeaderReader(is), new BlastInputStream(is)));
+        this(new DBCHeaderReader(is), new BlastInputStream(is));
+    }
+
+    private DBCInputStream(DBCHeaderReader header, BlastInputStream body) {
+        super(header);
+        this.header = header;
+        this.body = body;
+        this.event = DBCEvents.beginFile();
+    }
+
+    private DBCInputStream(DBCChannel channel) {
+        super(Channels.newInputStream(channel));
+    }
+
+    /**
+     * Creates a new InputStream reading a DBC file.  The file is decoded
+     * through a <code>DBCChannel</code>, so it is mapped into memory instead
+     * of being read onto the heap.
+     *
+     * @param path the DBC file
+     * @return a new input stream
+     * @throws IOException if an I/O error occurs or the DBC header is incomplete
+     * @see DBCChannel#open(Path)
+     */
+    public static DBCInputStream open(Path path) throws IOException {
+        return new DBCInputStream(DBCChannel.open(path));
+    }
+
+    /**
+     * Resets the stream to read another DBC file, reusing the decoding
+     * buffers of this one.  The previous input stream is not closed.
+     *
+     * @param is the input stream
+     */
+    public void reset(InputStream is) {
+        if (header == null) {
+            header = new DBCHeaderReader(is);
+            body = new BlastInputStream(is);
+        } else {
+            header.reset(is);
+            body.reset(is);
+        }
+
+        in = header;
+        closed = false;
+        event = DBCEvents.beginFile();
+    }
+
+    /**
+     * Switches from the header to the compressed data once the header has
+     * been read.
+     *
+     * @return <code>true</code> if the switch happened
+     */
+    private boolean nextStream() {
+        if (in != header || header == null)
+            return false;
+
+        in = body;
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (closed)
+            return -1;
+
+        int data = in.read();
+        if (data == -1 && nextStream())
+            data = in.read();
+
+        return data;
+    }
+
+    @Override
+    public int read(byte[] buf, int offset, int len) throws IOException {
+        if (closed)
+            return -1;
+
+        int n = in.read(buf, offset, len);
+        if (n == -1 && nextStream())
+            n = in.read(buf, offset, len);
+
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (closed)
+            return 0;
+
+        long skipped = in.skip(n);
+        if (skipped == 0 && nextStream())
+            skipped = in.skip(n);
+
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return closed ? 0 : in.available();
+    }
+
+    /**
+     * Closes the underlying stream.  A stream taken from a
+     * <code>DBCInputStreamPool</code> is returned to it.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+
+        closed = true;
+        if (event != null) {
+            DBCEvents.endFile(event, header.getHeaderLength(), body.getTotalIn(), body.getTotalOut());
+            event = null;
+        }
+
+        try {
+            if (body != null)
+                body.close();
+            else
+                in.close();
+        } finally {
+            if (pool != null)
+                pool.release(this);
+        }
     }
 
 }
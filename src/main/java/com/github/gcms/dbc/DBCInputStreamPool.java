@@ -0,0 +1,85 @@
+package com.github.gcms.dbc;
+
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe pool of <code>DBCInputStream</code> instances, so the decoding
+ * buffers are reused across files instead of being allocated for each one.
+ * <p>
+ * A stream taken from the pool returns to it when closed:
+ * <pre>
+ * try (InputStream in = pool.open(new FileInputStream(file))) {
+ *     ...
+ * }
+ * </pre>
+ * A stream must not be used after it is closed, since it may already be
+ * reading another file.
+ */
+public class DBCInputStreamPool {
+    /* default maximum number of idle streams */
+    private static final int DEFAULT_MAX_IDLE = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final ConcurrentLinkedDeque<DBCInputStream> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final int maxIdle;
+
+    /**
+     * Creates a pool keeping up to twice the number of processors idle
+     * streams.
+     */
+    public DBCInputStreamPool() {
+        this(DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * Creates a pool keeping up to <code>maxIdle</code> idle streams.  Streams
+     * closed while the pool is full are discarded.
+     *
+     * @param maxIdle the maximum number of idle streams
+     */
+    public DBCInputStreamPool(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Takes a stream from the pool, or creates a new one, to read a DBC file.
+     *
+     * @param is the input stream
+     * @return a stream reading the DBC file
+     */
+    public DBCInputStream open(InputStream is) {
+        DBCInputStream stream = idle.pollFirst();
+        if (stream == null) {
+            stream = new DBCInputStream(is);
+            stream.pool = this;
+        } else {
+            idleCount.decrementAndGet();
+            stream.reset(is);
+        }
+
+        return stream;
+    }
+
+    /**
+     * Returns the number of idle streams in the pool.
+     *
+     * @return the number of idle streams
+     */
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    /**
+     * Returns a closed stream to the pool.  The most recently returned
+     * streams are reused first, as their buffers are more likely to be
+     * cached.
+     */
+    void release(DBCInputStream stream) {
+        if (idleCount.incrementAndGet() <= maxIdle)
+            idle.offerFirst(stream);
+        else
+            idleCount.decrementAndGet();
+    }
+}
@@ -0,0 +1,175 @@
+package com.github.gcms.dbc;
+
+import com.github.gcms.blast.BlastOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Implements a stream for writing DBC files from DBF data, i.e. the DBF
+ * header followed by its records.
+ * <p>
+ * A DBC file holds the DBF header as is, followed by the CRC-32 of the whole
+ * DBF data (little-endian) and the records compressed in PKWare Data
+ * Compression Library (DCL) format.  Records are compressed as they are
+ * written; since the CRC-32 is only known at the end, it is written back in
+ * place when the stream is closed, which is why the output must be seekable.
+ */
+public class DBCOutputStream extends OutputStream {
+    private final SeekableByteChannel channel;
+    private final boolean encoded;
+    private final int dictSize;
+    private final int level;
+
+    private final CRC32 crc = new CRC32();
+    private final byte[] single = new byte[1];
+
+    private byte[] header = new byte[10];  /* DBF header, until written */
+    private int headerCount;
+    private long crcPosition;
+    private BlastOutputStream body;
+    private boolean closed;
+
+    /**
+     * Creates a new stream writing to a channel, compressing in binary mode
+     * with a 4 KB dictionary, as DATASUS files are.
+     *
+     * @param channel the channel, at the position where the DBC file starts
+     */
+    public DBCOutputStream(SeekableByteChannel channel) {
+        this(channel, false, BlastOutputStream.DEFAULT_DICTIONARY_SIZE, BlastOutputStream.DEFAULT_LEVEL);
+    }
+
+    /**
+     * Creates a new stream writing to a channel.
+     *
+     * @param channel  the channel, at the position where the DBC file starts
+     * @param encoded  <code>true</code> to code literals (ASCII mode)
+     * @param dictSize the dictionary size: 1024, 2048 or 4096
+     * @param level    the compression level
+     * @see BlastOutputStream#BlastOutputStream(OutputStream, boolean, int, int)
+     */
+    public DBCOutputStream(SeekableByteChannel channel, boolean encoded, int dictSize, int level) {
+        this.channel = channel;
+        this.encoded = encoded;
+        this.dictSize = dictSize;
+        this.level = level;
+    }
+
+    /**
+     * Creates a new stream writing to a file, replacing it if it exists.
+     *
+     * @param path the DBC file
+     * @return a new output stream
+     * @throws IOException if an I/O error occurs
+     */
+    public static DBCOutputStream create(Path path) throws IOException {
+        return new DBCOutputStream(FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    /**
+     * Writes DBF data.  The header is kept until it is complete; records are
+     * compressed as they are written.
+     *
+     * @param b   the data
+     * @param off the start offset of the data
+     * @param len the length of the data
+     * @throws IOException if an I/O error has occurred
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed)
+            throw new IOException("Stream closed");
+        if (off < 0 || len < 0 || off > b.length - len)
+            throw new IndexOutOfBoundsException();
+
+        crc.update(b, off, len);
+
+        while (body == null && len > 0) {
+            int n = Math.min(len, header.length - headerCount);
+            System.arraycopy(b, off, header, headerCount, n);
+            headerCount += n;
+            off += n;
+            len -= n;
+
+            if (headerCount == header.length)
+                nextHeaderPart();
+        }
+
+        if (len > 0)
+            body.write(b, off, len);
+    }
+
+    /**
+     * Called when the header buffer is full: after the first 10 bytes, grow
+     * it to the header length read from them, then write the header.
+     */
+    private void nextHeaderPart() throws IOException {
+        if (headerCount == 10) {
+            // header size at bytes 8-9
+            int headerLength = (header[8] & 0xff) + ((header[9] & 0xff) << 8);
+            if (headerLength < 10)
+                throw new DBCFormatException("Wrong DBF header length: " + headerLength);
+
+            byte[] start = header;
+            header = new byte[headerLength];
+            System.arraycopy(start, 0, header, 0, 10);
+            if (headerLength > 10)
+                return;
+        }
+
+        writeFully(ByteBuffer.wrap(header));
+        crcPosition = channel.position();
+        writeFully(ByteBuffer.allocate(4));
+
+        body = new BlastOutputStream(Channels.newOutputStream(channel), encoded, dictSize, level);
+        header = null;
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    /**
+     * Finishes the compressed records, writes the CRC-32 of the DBF data and
+     * closes the channel.
+     *
+     * @throws IOException if an I/O error occurs or the DBF header is incomplete
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+
+        closed = true;
+        try {
+            if (body == null)
+                throw new DBCFormatException("Wrong DBF header format, premature end of data");
+
+            body.finish();
+
+            long end = channel.position();
+            channel.position(crcPosition);
+            writeFully(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, (int) crc.getValue()));
+            channel.position(end);
+        } finally {
+            channel.close();
+        }
+    }
+}
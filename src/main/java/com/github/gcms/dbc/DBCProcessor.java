@@ -2,9 +2,11 @@ package com.github.gcms.dbc;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public class DBCProcessor {
     private final InputStream input;
+    private long checksum;  /* CRC32 of the DBF, stored after the header */
 
     public DBCProcessor(InputStream input) {
         this.input = input;
@@ -29,12 +31,24 @@ public class DBCProcessor {
         // remaining bytes in the header
         readAndCheck(header, 10, headerLength - 10);
 
-        // jump to position (headerLength + 4)
-        check(input.skip(4), 4);
+        // CRC32 at position headerLength, little-endian
+        byte[] crc = new byte[4];
+        readAndCheck(crc);
+        checksum = (crc[0] & 0xffL) | (crc[1] & 0xffL) << 8 | (crc[2] & 0xffL) << 16 | (crc[3] & 0xffL) << 24;
 
         return header;
     }
 
+    /**
+     * Returns the CRC32 of the whole DBF file stored after the header, once
+     * <code>readHeader</code> has been called.
+     *
+     * @return the stored CRC32
+     */
+    public long getChecksum() {
+        return checksum;
+    }
+
     private void readAndCheck(byte[] data) throws IOException {
         readAndCheck(data, 0, data.length);
     }
@@ -49,8 +63,48 @@ public class DBCProcessor {
     }
 
 
+    /**
+     * Returns the number of field descriptors in a DBF header, which end at
+     * the 0x0D terminator or at the end of the header.
+     *
+     * @param header the DBF header
+     * @return the number of fields
+     */
+    public static int getFieldCount(byte[] header) {
+        int count = 0;
+        for (int pos = 32; pos + 32 <= header.length && header[pos] != 0x0D; pos += 32)
+            count++;
+
+        return count;
+    }
+
     public static byte[] read(InputStream is) throws IOException {
         return new DBCProcessor(is).readHeader();
     }
 
+    /**
+     * Reads the DBF header from the beginning of a DBC file held in a buffer,
+     * and advances the buffer position to the compressed data.
+     *
+     * @param buffer the DBC file contents, from its position
+     * @return the DBF header
+     * @throws DBCFormatException if the header is incomplete
+     */
+    public static byte[] read(ByteBuffer buffer) throws DBCFormatException {
+        check(Math.min(buffer.remaining(), 10), 10);
+
+        // header size at bytes 8-9
+        int pos = buffer.position();
+        int headerLength = readLittleEndian(buffer.get(pos + 8), buffer.get(pos + 9));
+        check(Math.min(buffer.remaining(), headerLength + 4), headerLength + 4);
+
+        byte[] header = new byte[headerLength];
+        buffer.get(header);
+
+        // jump to position (headerLength + 4)
+        buffer.position(buffer.position() + 4);
+
+        return header;
+    }
+
 }
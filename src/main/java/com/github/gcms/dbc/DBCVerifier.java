@@ -0,0 +1,205 @@
+package com.github.gcms.dbc;
+
+import com.github.gcms.blast.BlastInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+/**
+ * Verifies that DBC files decode cleanly, without handing the decoded data
+ * to the caller.
+ * <p>
+ * Each file is decoded into the internal buffer of a
+ * <code>BlastInputStream</code> and every chunk goes straight to the
+ * checksums from there, so there is no copy and no second pass.  A file is
+ * valid if it decodes without error, the CRC32 stored after its header
+ * matches the decoded data and the data holds all the records the header
+ * counts.  The result carries the uncompressed size, the record count and a
+ * checksum of the whole DBF data, by default the same CRC32.  Another
+ * checksum can be given as a fingerprint, e.g. <code>CRC32C::new</code> on
+ * Java 9 and later; the CRC32 is then computed as well.
+ * <pre>
+ * DBCVerifier.Result result = new DBCVerifier().verify(path);
+ * </pre>
+ * A verifier may be used by several threads at once.
+ */
+public class DBCVerifier {
+    /* default size of the decoding buffer */
+    private static final int DEFAULT_BUFFER_SIZE = 1024 * 64;
+
+    private final Supplier<? extends Checksum> checksum;
+    private final int bufferSize;
+
+    /**
+     * Creates a verifier fingerprinting the data with its CRC32.
+     */
+    public DBCVerifier() {
+        this(CRC32::new);
+    }
+
+    /**
+     * Creates a verifier fingerprinting the data with another checksum.
+     *
+     * @param checksum the checksum for each file
+     */
+    public DBCVerifier(Supplier<? extends Checksum> checksum) {
+        this(checksum, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a verifier fingerprinting the data with another checksum.
+     *
+     * @param checksum   the checksum for each file
+     * @param bufferSize the size of the decoding buffer, at least
+     *                   <code>BlastInputStream.WINDOW_SIZE</code>
+     * @throws IllegalArgumentException if the buffer is smaller than the window
+     */
+    public DBCVerifier(Supplier<? extends Checksum> checksum, int bufferSize) {
+        if (bufferSize < BlastInputStream.WINDOW_SIZE)
+            throw new IllegalArgumentException("Buffer smaller than the window size: " + bufferSize);
+
+        this.checksum = checksum;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Verifies a DBC file.
+     *
+     * @param path the DBC file
+     * @return the size, record count and checksum of the DBF data
+     * @throws DBCFormatException if the checksum or the size is wrong
+     * @throws IOException        if an I/O error occurs or the file is
+     *                            malformed
+     */
+    public Result verify(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return verify(in);
+        }
+    }
+
+    /**
+     * Verifies a DBC file read from a stream, which is not closed.
+     *
+     * @param in the input stream
+     * @return the size, record count and checksum of the DBF data
+     * @throws DBCFormatException if the checksum or the size is wrong
+     * @throws IOException        if an I/O error occurs or the stream is
+     *                            malformed
+     */
+    public Result verify(InputStream in) throws IOException {
+        DBCProcessor processor = new DBCProcessor(in);
+        byte[] header = processor.readHeader();
+        if (header.length < 32)
+            throw new DBCFormatException("Wrong DBC file header format, header too short");
+
+        Checksum fingerprint = checksum.get();
+        CRC32 crc = fingerprint instanceof CRC32 ? (CRC32) fingerprint : new CRC32();
+        Checksum both = crc == fingerprint ? crc : new Tee(crc, fingerprint);
+
+        both.update(header, 0, header.length);
+        long size = header.length + new BlastInputStream(in, bufferSize, true).drain(both);
+
+        if (crc.getValue() != processor.getChecksum())
+            throw new DBCFormatException(String.format(Locale.ROOT,
+                    "Wrong DBC checksum, %08x stored, %08x decoded", processor.getChecksum(), crc.getValue()));
+
+        // record count at bytes 4-7, record length at bytes 10-11
+        long records = (header[4] & 0xffL) | (header[5] & 0xffL) << 8 | (header[6] & 0xffL) << 16
+                | (header[7] & 0xffL) << 24;
+        int recordLength = (header[10] & 0xff) | (header[11] & 0xff) << 8;
+        if (size < header.length + records * recordLength)
+            throw new DBCFormatException("Wrong DBC size, " + size + " bytes decoded for " + records
+                    + " records of " + recordLength + " bytes");
+
+        return new Result(size, records, fingerprint.getValue());
+    }
+
+    /**
+     * Size, record count and checksum of a verified file.
+     */
+    public static final class Result {
+        private final long size;
+        private final long recordCount;
+        private final long checksum;
+
+        Result(long size, long recordCount, long checksum) {
+            this.size = size;
+            this.recordCount = recordCount;
+            this.checksum = checksum;
+        }
+
+        /**
+         * Returns the size of the DBF data, header included.
+         *
+         * @return the uncompressed size
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Returns the number of records, deleted ones included.
+         *
+         * @return the record count
+         */
+        public long getRecordCount() {
+            return recordCount;
+        }
+
+        /**
+         * Returns the checksum of the DBF data, header included.
+         *
+         * @return the checksum value
+         */
+        public long getChecksum() {
+            return checksum;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "Result{size=%d, recordCount=%d, checksum=%08x}",
+                    size, recordCount, checksum);
+        }
+    }
+
+    /**
+     * Updates two checksums at once.
+     */
+    private static class Tee implements Checksum {
+        private final Checksum a, b;
+
+        Tee(Checksum a, Checksum b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public void update(int data) {
+            a.update(data);
+            b.update(data);
+        }
+
+        @Override
+        public void update(byte[] data, int offset, int len) {
+            a.update(data, offset, len);
+            b.update(data, offset, len);
+        }
+
+        @Override
+        public long getValue() {
+            return b.getValue();
+        }
+
+        @Override
+        public void reset() {
+            a.reset();
+            b.reset();
+        }
+    }
+}
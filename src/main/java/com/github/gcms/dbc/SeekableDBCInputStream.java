@@ -0,0 +1,176 @@
+package com.github.gcms.dbc;
+
+import com.github.gcms.blast.BlastIndex;
+import com.github.gcms.blast.SeekableBlastInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Implements a stream for reading DBC files which can be positioned at any
+ * offset of the DBF data, or at any record.
+ * <p>
+ * Records are reached through a <code>BlastIndex</code> of the compressed
+ * records, built once with <code>index</code> and usually saved alongside
+ * the DBC file:
+ * <pre>
+ * BlastIndex index = SeekableDBCInputStream.index(path, BlastIndex.DEFAULT_INTERVAL);
+ * index.save(indexPath);
+ * ...
+ * try (SeekableDBCInputStream in = SeekableDBCInputStream.open(path, BlastIndex.load(indexPath))) {
+ *     in.seekRecord(2000000);
+ *     ...
+ * }
+ * </pre>
+ */
+public class SeekableDBCInputStream extends InputStream {
+    private final byte[] header;
+    private final SeekableBlastInputStream body;
+    private int headerPos;
+
+    private SeekableDBCInputStream(byte[] header, SeekableBlastInputStream body) {
+        this.header = header;
+        this.body = body;
+    }
+
+    /**
+     * Opens a DBC file.
+     *
+     * @param path  the DBC file
+     * @param index the index of the compressed records, or <code>null</code>
+     * @return a new input stream
+     * @throws IOException if an I/O error occurs or the DBC header is incomplete
+     */
+    public static SeekableDBCInputStream open(Path path, BlastIndex index) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            byte[] header = new DBCProcessor(Channels.newInputStream(channel)).readHeader();
+
+            return new SeekableDBCInputStream(header, new SeekableBlastInputStream(channel, index));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Builds the index of the compressed records of a DBC file.
+     *
+     * @param path     the DBC file
+     * @param interval the number of uncompressed bytes between checkpoints
+     * @return the index
+     * @throws IOException if an I/O error occurs or the file is malformed
+     */
+    public static BlastIndex index(Path path, long interval) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            new DBCProcessor(Channels.newInputStream(channel)).readHeader();
+
+            return BlastIndex.build(channel, interval);
+        }
+    }
+
+    /**
+     * Returns the DBF header.
+     *
+     * @return the header
+     */
+    public byte[] getHeader() {
+        return header.clone();
+    }
+
+    /**
+     * Returns the number of records, from the DBF header.
+     *
+     * @return the number of records
+     */
+    public long getRecordCount() {
+        return (header[4] & 0xff) | (header[5] & 0xff) << 8 | (header[6] & 0xff) << 16
+                | (header[7] & 0xffL) << 24;
+    }
+
+    /**
+     * Returns the length of a record, from the DBF header.
+     *
+     * @return the record length
+     */
+    public int getRecordLength() {
+        return (header[10] & 0xff) | (header[11] & 0xff) << 8;
+    }
+
+    /**
+     * Returns the offset in the DBF data the next byte is read from.
+     *
+     * @return the current offset
+     */
+    public long position() {
+        return headerPos < header.length ? headerPos : header.length + body.position();
+    }
+
+    /**
+     * Positions the stream at an offset of the DBF data.
+     *
+     * @param offset the offset
+     * @throws IOException if an I/O error occurs or the file is malformed
+     */
+    public void seek(long offset) throws IOException {
+        if (offset < 0)
+            throw new IllegalArgumentException("Negative offset: " + offset);
+
+        headerPos = (int) Math.min(offset, header.length);
+        body.seek(offset - headerPos);
+    }
+
+    /**
+     * Positions the stream at the start of a record.
+     *
+     * @param record the record number, starting from 0
+     * @throws IOException if an I/O error occurs or the file is malformed
+     */
+    public void seekRecord(long record) throws IOException {
+        seek(header.length + record * getRecordLength());
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (headerPos < header.length)
+            return header[headerPos++] & 0xff;
+
+        return body.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (headerPos < header.length) {
+            int n = Math.min(len, header.length - headerPos);
+            System.arraycopy(header, headerPos, b, off, n);
+            headerPos += n;
+            return n;
+        }
+
+        return body.read(b, off, len);
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0)
+            return 0;
+
+        long position = position();
+        seek(position + n);
+        return position() - position;
+    }
+
+    /**
+     * Closes the DBC file.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+}
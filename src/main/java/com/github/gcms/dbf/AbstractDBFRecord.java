@@ -0,0 +1,235 @@
+package com.github.gcms.dbf;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Field accessors of a record held in an array, shared by the
+ * <code>DBFReader</code> cursor and <code>DBFRecord</code> values.
+ */
+abstract class AbstractDBFRecord {
+    static final byte DELETED = '*';
+
+    byte[] data;                /* array holding the record */
+    int record;                 /* offset of the deletion flag in data */
+    long recordNumber = -1;     /* number of the record in the file */
+
+    List<DBFField> fields;      /* fields read */
+    int[] offsets;              /* field offsets, from the deletion flag */
+    int[] lengths;              /* field lengths */
+    DBFDictionary[] dictionaries;   /* by field, null if none */
+    DBFCharset charset = DBFCharset.ISO_8859_1;
+
+    /**
+     * Returns the number of the record in the file, starting from 0.
+     *
+     * @return the record number, or -1 before the first record
+     */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * Returns the fields read, i.e. the selected fields or all fields if
+     * none were selected.
+     *
+     * @return the field descriptors
+     */
+    public List<DBFField> getFields() {
+        return fields;
+    }
+
+    /**
+     * Finds a field read by name, ignoring case.
+     *
+     * @param name the field name
+     * @return the field index to pass to the accessors, or -1 if the field
+     * is not read
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.get(i).getName().equalsIgnoreCase(name))
+                return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns <code>true</code> if the record is marked as deleted.
+     *
+     * @return <code>true</code> if the record is deleted
+     */
+    public boolean isDeleted() {
+        return data[record] == DELETED;
+    }
+
+    /**
+     * Returns <code>true</code> if a field holds only spaces, which is how
+     * xBase stores missing values.
+     *
+     * @param field the field index
+     * @return <code>true</code> if the field is blank
+     */
+    public boolean isBlank(int field) {
+        return FieldParser.isBlank(data, record + offsets[field], lengths[field]);
+    }
+
+    /**
+     * Reads a numeric field as an <code>int</code>.
+     *
+     * @param field the field index
+     * @return the field value, 0 if the field is blank
+     * @throws NumberFormatException if the field is not an integer
+     * @see #getLong(int)
+     */
+    public int getInt(int field) {
+        try {
+            return FieldParser.parseInt(data, record + offsets[field], lengths[field]);
+        } catch (NumberFormatException e) {
+            throw numberFormatException(field);
+        }
+    }
+
+    /**
+     * Reads a numeric field as a <code>long</code>.  Leading and trailing
+     * spaces are ignored, as is a leading sign.
+     *
+     * @param field the field index
+     * @return the field value, 0 if the field is blank
+     * @throws NumberFormatException if the field is not an integer
+     */
+    public long getLong(int field) {
+        try {
+            return FieldParser.parseLong(data, record + offsets[field], lengths[field]);
+        } catch (NumberFormatException e) {
+            throw numberFormatException(field);
+        }
+    }
+
+    /**
+     * Reads a numeric field as a <code>double</code>.
+     *
+     * @param field the field index
+     * @return the field value, 0 if the field is blank
+     * @throws NumberFormatException if the field is not a number
+     * @see #getScaled(int)
+     */
+    public double getDouble(int field) {
+        try {
+            return FieldParser.parseDouble(data, record + offsets[field], lengths[field]);
+        } catch (NumberFormatException e) {
+            throw numberFormatException(field);
+        }
+    }
+
+    /**
+     * Reads a numeric field exactly, as a fixed-point value with the decimal
+     * count of the field, e.g. 12345 for " 123.45" in an N(14,2) field.
+     *
+     * @param field the field index
+     * @return the unscaled field value, 0 if the field is blank
+     * @throws NumberFormatException if the field is not a number with at
+     *                               most its decimal count
+     */
+    public long getScaled(int field) {
+        try {
+            return FieldParser.parseScaled(data, record + offsets[field], lengths[field],
+                    fields.get(field).getDecimalCount());
+        } catch (NumberFormatException e) {
+            throw numberFormatException(field);
+        }
+    }
+
+    /**
+     * Reads a date field, stored as YYYYMMDD, as the number of days since
+     * 1970-01-01.
+     *
+     * @param field the field index
+     * @return the number of days, 0 if the field is blank
+     * @throws NumberFormatException if the field is not a valid date
+     * @see #getDate(int)
+     */
+    public int getEpochDay(int field) {
+        try {
+            return FieldParser.parseEpochDay(data, record + offsets[field], lengths[field]);
+        } catch (NumberFormatException e) {
+            throw numberFormatException(field);
+        }
+    }
+
+    /**
+     * Reads a date field, stored as YYYYMMDD.
+     *
+     * @param field the field index
+     * @return the date, or <code>null</code> if the field is blank
+     * @throws NumberFormatException if the field is not a valid date
+     */
+    public LocalDate getDate(int field) {
+        return isBlank(field) ? null : LocalDate.ofEpochDay(getEpochDay(field));
+    }
+
+    /**
+     * Reads a logical field: T and Y are true, F and N false, in either case.
+     *
+     * @param field the field index
+     * @return the field value, <code>false</code> if the field is blank or ?
+     * @throws NumberFormatException if the field is not a logical value
+     */
+    public boolean getBoolean(int field) {
+        try {
+            return FieldParser.parseLogical(data, record + offsets[field], lengths[field]) > 0;
+        } catch (NumberFormatException e) {
+            throw numberFormatException(field);
+        }
+    }
+
+    NumberFormatException numberFormatException(int field) {
+        return new NumberFormatException("Wrong value in field " + fields.get(field).getName()
+                + " of record " + recordNumber + ": \"" + getString(field) + "\"");
+    }
+
+    /**
+     * Copies the bytes of a field.
+     *
+     * @param field  the field index
+     * @param dst    the array the bytes are copied to
+     * @param offset the start offset in dst
+     * @return the number of bytes copied, i.e. the field length
+     */
+    public int getBytes(int field, byte[] dst, int offset) {
+        System.arraycopy(data, record + offsets[field], dst, offset, lengths[field]);
+
+        return lengths[field];
+    }
+
+    /**
+     * Reads a field as a string, without leading and trailing spaces,
+     * decoded with the charset of the reader.  This allocates a string,
+     * unless the field has a dictionary, so hot loops should prefer the
+     * other accessors.
+     *
+     * @param field the field index
+     * @return the field value
+     */
+    public String getString(int field) {
+        if (dictionaries != null && dictionaries[field] != null)
+            return dictionaries[field].getString(data, record + offsets[field]);
+
+        return charset.decode(data, record + offsets[field], lengths[field]);
+    }
+
+    /**
+     * Decodes a field into an array, without leading and trailing spaces,
+     * with the charset of the reader.
+     *
+     * @param field  the field index
+     * @param dst    the array the characters are written to, with room for
+     *               the field length
+     * @param offset the start offset in dst
+     * @return the number of characters written
+     */
+    public int getChars(int field, char[] dst, int offset) {
+        return charset.decode(data, record + offsets[field], lengths[field], dst, offset);
+    }
+}
@@ -0,0 +1,287 @@
+package com.github.gcms.dbf;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Decodes the text of DBF fields in a single-byte code page, e.g. CP850 or
+ * ISO-8859-1, through a table of the 256 characters.  As DBF files pad
+ * fields with ASCII spaces and write numbers in ASCII, the code page must
+ * map bytes below 0x80 to ASCII; EBCDIC code pages are not supported.
+ * <p>
+ * Fields are trimmed of leading and trailing spaces as they are decoded, as
+ * by <code>String.trim</code>, without going through a
+ * <code>CharsetDecoder</code>.  ASCII fields, the
+ * most common, and ISO-8859-1 text become compact Latin-1 strings without
+ * any table lookup.  Text can also be decoded into a reusable
+ * <code>char[]</code> or <code>StringBuilder</code>, allocating nothing.
+ * <p>
+ * The code page of a file may be given by the language driver byte of its
+ * header, see <code>forLanguageDriver</code>.
+ */
+public final class DBFCharset {
+    /**
+     * ISO-8859-1, in which each byte is the character of the same code.
+     */
+    public static final DBFCharset ISO_8859_1 = new DBFCharset(StandardCharsets.ISO_8859_1);
+
+    /* decoders built so far, so each table is built once */
+    private static final ConcurrentMap<Charset, DBFCharset> CHARSETS = new ConcurrentHashMap<>();
+
+    private final Charset charset;
+    private final char[] table;         /* character of each byte */
+    private final boolean latin1;       /* table is the identity */
+    private final int[] reverse;        /* character << 8 | byte, sorted by character */
+
+    private DBFCharset(Charset charset) {
+        this.charset = charset;
+        this.table = new char[256];
+
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        boolean identity = true;
+        for (int i = 0; i < 256; i++) {
+            try {
+                CharBuffer c = decoder.reset().decode(ByteBuffer.wrap(new byte[]{(byte) i}));
+                table[i] = c.length() == 1 ? c.get(0) : '\uFFFD';
+            } catch (CharacterCodingException e) {
+                table[i] = '\uFFFD';
+            }
+            identity &= table[i] == i;
+            if (i < 0x80 && table[i] != i)
+                throw new IllegalArgumentException("Not an ASCII-compatible charset: " + charset);
+        }
+        this.latin1 = identity;
+
+        int[] reverse = new int[256];
+        int count = 0;
+        for (int i = 0; i < 256; i++) {
+            if (table[i] != '\uFFFD')
+                reverse[count++] = table[i] << 8 | i;
+        }
+        Arrays.sort(reverse, 0, count);
+        this.reverse = Arrays.copyOf(reverse, count);
+    }
+
+    /**
+     * Returns the decoder of a single-byte charset.  Decoders are shared, so
+     * the table of a charset is built once.
+     *
+     * @param charset the charset
+     * @return the decoder
+     * @throws IllegalArgumentException if the charset is not single-byte or
+     *                                  not ASCII-compatible
+     */
+    public static DBFCharset of(Charset charset) {
+        if (charset.equals(StandardCharsets.ISO_8859_1))
+            return ISO_8859_1;
+
+        DBFCharset decoder = CHARSETS.get(charset);
+        if (decoder != null)
+            return decoder;
+        if (charset.newEncoder().maxBytesPerChar() != 1)
+            throw new IllegalArgumentException("Not a single-byte charset: " + charset);
+
+        return CHARSETS.computeIfAbsent(charset, DBFCharset::new);
+    }
+
+    /**
+     * Returns the decoder of a single-byte charset.
+     *
+     * @param name the charset name, e.g. "IBM850"
+     * @return the decoder
+     * @throws IllegalArgumentException if the charset is not supported,
+     *                                  not single-byte or not
+     *                                  ASCII-compatible
+     */
+    public static DBFCharset forName(String name) {
+        return of(Charset.forName(name));
+    }
+
+    /**
+     * Returns the decoder of the code page of a language driver, as stored
+     * at byte 29 of DBF headers.  Files without one, or with an unknown one,
+     * are read as ISO-8859-1.
+     *
+     * @param id the language driver id
+     * @return the decoder
+     */
+    public static DBFCharset forLanguageDriver(int id) {
+        String name;
+        switch (id) {
+            case 0x01:
+                name = "IBM437";
+                break;
+            case 0x02:
+                name = "IBM850";
+                break;
+            case 0x03:
+            case 0x57:
+                name = "windows-1252";
+                break;
+            case 0x64:
+                name = "IBM852";
+                break;
+            case 0x65:
+                name = "IBM866";
+                break;
+            case 0x66:
+                name = "IBM865";
+                break;
+            case 0x67:
+                name = "IBM861";
+                break;
+            case 0xc8:
+                name = "windows-1250";
+                break;
+            case 0xc9:
+                name = "windows-1251";
+                break;
+            case 0xcb:
+                name = "windows-1253";
+                break;
+            default:
+                return ISO_8859_1;
+        }
+
+        return Charset.isSupported(name) ? forName(name) : ISO_8859_1;
+    }
+
+    /**
+     * Returns the charset decoded.
+     *
+     * @return the charset
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Decodes a field, without leading and trailing spaces.
+     *
+     * @param b   the array holding the field
+     * @param pos the offset of the field in b
+     * @param len the field length
+     * @return the text
+     */
+    public String decode(byte[] b, int pos, int len) {
+        int end = pos + len;
+        while (pos < end && (b[pos] & 0xff) <= ' ')
+            pos++;
+        while (end > pos && (b[end - 1] & 0xff) <= ' ')
+            end--;
+
+        if (latin1 || isAscii(b, pos, end))
+            return new String(b, pos, end - pos, StandardCharsets.ISO_8859_1);
+
+        char[] c = new char[end - pos];
+        for (int i = 0; pos < end; i++)
+            c[i] = table[b[pos++] & 0xff];
+
+        return new String(c);
+    }
+
+    /**
+     * Decodes a field into an array, without leading and trailing spaces.
+     *
+     * @param b      the array holding the field
+     * @param pos    the offset of the field in b
+     * @param len    the field length
+     * @param dst    the array the characters are written to, at least
+     *               <code>len</code> long from <code>offset</code>
+     * @param offset the start offset in dst
+     * @return the number of characters written
+     */
+    public int decode(byte[] b, int pos, int len, char[] dst, int offset) {
+        int end = pos + len;
+        while (pos < end && (b[pos] & 0xff) <= ' ')
+            pos++;
+        while (end > pos && (b[end - 1] & 0xff) <= ' ')
+            end--;
+
+        int count = end - pos;
+        for (int i = offset; pos < end; i++)
+            dst[i] = table[b[pos++] & 0xff];
+
+        return count;
+    }
+
+    /**
+     * Appends a field to a builder, without leading and trailing spaces.
+     *
+     * @param b   the array holding the field
+     * @param pos the offset of the field in b
+     * @param len the field length
+     * @param sb  the builder
+     */
+    public void decode(byte[] b, int pos, int len, StringBuilder sb) {
+        int end = pos + len;
+        while (pos < end && (b[pos] & 0xff) <= ' ')
+            pos++;
+        while (end > pos && (b[end - 1] & 0xff) <= ' ')
+            end--;
+
+        for (; pos < end; pos++)
+            sb.append(table[b[pos] & 0xff]);
+    }
+
+    /**
+     * Returns the character of a byte.
+     *
+     * @param b the byte
+     * @return the character
+     */
+    public char toChar(byte b) {
+        return table[b & 0xff];
+    }
+
+    /**
+     * Encodes text as it would be stored, one byte per character.
+     *
+     * @param text the text
+     * @return the bytes, or <code>null</code> if a character is not in the
+     * charset
+     */
+    byte[] encode(String text) {
+        byte[] b = new byte[text.length()];
+        for (int i = 0; i < b.length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80 || latin1 && c < 0x100) {
+                b[i] = (byte) c;
+                continue;
+            }
+
+            int slot = Arrays.binarySearch(reverse, c << 8);
+            if (slot < 0)
+                slot = -slot - 1;
+            if (slot == reverse.length || reverse[slot] >>> 8 != c)
+                return null;
+            b[i] = (byte) reverse[slot];
+        }
+
+        return b;
+    }
+
+    private static boolean isAscii(byte[] b, int pos, int end) {
+        for (; pos < end; pos++) {
+            if (b[pos] < 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return charset.name();
+    }
+}
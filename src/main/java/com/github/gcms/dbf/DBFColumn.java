@@ -0,0 +1,372 @@
+package com.github.gcms.dbf;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Values of a field for the rows of a <code>DBFColumnBatch</code>, in a
+ * primitive array chosen from the field descriptor:
+ * <ul>
+ * <li>N and F fields without decimals: <code>IntColumn</code>, or
+ * <code>LongColumn</code> if longer than 9 digits;</li>
+ * <li>N and F fields with decimals: <code>DoubleColumn</code>;</li>
+ * <li>D fields: <code>DateColumn</code>, as days since 1970-01-01;</li>
+ * <li>L fields: <code>BooleanColumn</code>;</li>
+ * <li>other fields, e.g. C: <code>CharColumn</code>, holding the raw bytes
+ * and, for fields with a dictionary, the ids of the values.</li>
+ * </ul>
+ * Blank fields, and unknown logical values, are null: their bit is set in
+ * the null bitmap and their value is 0 or <code>false</code>.
+ */
+public abstract class DBFColumn {
+    final DBFField field;
+    final int offset;               /* offset of the field in the record */
+    final int length;
+    private final long[] nulls;     /* bit set for each null row */
+    private int nullCount;
+
+    DBFColumn(DBFField field, int capacity) {
+        this.field = field;
+        this.offset = field.getOffset();
+        this.length = field.getLength();
+        this.nulls = new long[(capacity + 63) >>> 6];
+    }
+
+    static DBFColumn create(DBFField field, DBFDictionary dictionary, DBFCharset charset, int capacity) {
+        switch (field.getType()) {
+            case 'N':
+            case 'F':
+                if (field.getDecimalCount() > 0 || field.getLength() > 18)
+                    return new DoubleColumn(field, capacity);
+                return field.getLength() > 9 ? new LongColumn(field, capacity) : new IntColumn(field, capacity);
+            case 'D':
+                return new DateColumn(field, capacity);
+            case 'L':
+                return new BooleanColumn(field, capacity);
+            default:
+                return new CharColumn(field, dictionary, charset, capacity);
+        }
+    }
+
+    /**
+     * Returns the field the values are read from.
+     *
+     * @return the field descriptor
+     */
+    public DBFField getField() {
+        return field;
+    }
+
+    /**
+     * Returns <code>true</code> if the value of a row is null.
+     *
+     * @param row the row
+     * @return <code>true</code> if the field is blank in that row
+     */
+    public boolean isNull(int row) {
+        return (nulls[row >>> 6] & 1L << row) != 0;
+    }
+
+    /**
+     * Returns the number of null values in the batch.
+     *
+     * @return the number of null rows
+     */
+    public int getNullCount() {
+        return nullCount;
+    }
+
+    /**
+     * Returns the null bitmap: bit <code>row % 64</code> of word
+     * <code>row / 64</code> is set for each null row.
+     *
+     * @return the null bitmap
+     */
+    public long[] getNulls() {
+        return nulls;
+    }
+
+    void setNull(int row) {
+        nulls[row >>> 6] |= 1L << row;
+        nullCount++;
+    }
+
+    void clear() {
+        Arrays.fill(nulls, 0);
+        nullCount = 0;
+    }
+
+    /**
+     * Reads the value of a row from the record at <code>record</code>.
+     *
+     * @throws NumberFormatException if the field is malformed
+     */
+    abstract void read(byte[] b, int record, int row);
+
+    /**
+     * Column of <code>int</code> values.
+     */
+    public static class IntColumn extends DBFColumn {
+        private final int[] values;
+
+        IntColumn(DBFField field, int capacity) {
+            super(field, capacity);
+            this.values = new int[capacity];
+        }
+
+        @Override
+        void read(byte[] b, int record, int row) {
+            int pos = record + offset;
+            if (FieldParser.isBlank(b, pos, length)) {
+                values[row] = 0;
+                setNull(row);
+            } else {
+                values[row] = (int) FieldParser.parseLong(b, pos, length);
+            }
+        }
+
+        /**
+         * Returns the values, of which the first <code>getSize()</code> of
+         * the batch are filled.
+         *
+         * @return the values
+         */
+        public int[] getValues() {
+            return values;
+        }
+
+        public int get(int row) {
+            return values[row];
+        }
+    }
+
+    /**
+     * Column of <code>long</code> values.
+     */
+    public static class LongColumn extends DBFColumn {
+        private final long[] values;
+
+        LongColumn(DBFField field, int capacity) {
+            super(field, capacity);
+            this.values = new long[capacity];
+        }
+
+        @Override
+        void read(byte[] b, int record, int row) {
+            int pos = record + offset;
+            if (FieldParser.isBlank(b, pos, length)) {
+                values[row] = 0;
+                setNull(row);
+            } else {
+                values[row] = FieldParser.parseLong(b, pos, length);
+            }
+        }
+
+        /**
+         * Returns the values, of which the first <code>getSize()</code> of
+         * the batch are filled.
+         *
+         * @return the values
+         */
+        public long[] getValues() {
+            return values;
+        }
+
+        public long get(int row) {
+            return values[row];
+        }
+    }
+
+    /**
+     * Column of <code>double</code> values.
+     */
+    public static class DoubleColumn extends DBFColumn {
+        private final double[] values;
+
+        DoubleColumn(DBFField field, int capacity) {
+            super(field, capacity);
+            this.values = new double[capacity];
+        }
+
+        @Override
+        void read(byte[] b, int record, int row) {
+            int pos = record + offset;
+            if (FieldParser.isBlank(b, pos, length)) {
+                values[row] = 0;
+                setNull(row);
+            } else {
+                values[row] = FieldParser.parseDouble(b, pos, length);
+            }
+        }
+
+        /**
+         * Returns the values, of which the first <code>getSize()</code> of
+         * the batch are filled.
+         *
+         * @return the values
+         */
+        public double[] getValues() {
+            return values;
+        }
+
+        public double get(int row) {
+            return values[row];
+        }
+    }
+
+    /**
+     * Column of dates, as the number of days since 1970-01-01.
+     */
+    public static class DateColumn extends DBFColumn {
+        private final int[] values;
+
+        DateColumn(DBFField field, int capacity) {
+            super(field, capacity);
+            this.values = new int[capacity];
+        }
+
+        @Override
+        void read(byte[] b, int record, int row) {
+            int pos = record + offset;
+            if (FieldParser.isBlank(b, pos, length)) {
+                values[row] = 0;
+                setNull(row);
+            } else {
+                values[row] = FieldParser.parseEpochDay(b, pos, length);
+            }
+        }
+
+        /**
+         * Returns the values as days since 1970-01-01, of which the first
+         * <code>getSize()</code> of the batch are filled.
+         *
+         * @return the values
+         */
+        public int[] getValues() {
+            return values;
+        }
+
+        public int get(int row) {
+            return values[row];
+        }
+
+        /**
+         * Returns the value of a row as a date.
+         *
+         * @param row the row
+         * @return the date, or <code>null</code> if the value is null
+         */
+        public LocalDate getDate(int row) {
+            return isNull(row) ? null : LocalDate.ofEpochDay(values[row]);
+        }
+    }
+
+    /**
+     * Column of <code>boolean</code> values.
+     */
+    public static class BooleanColumn extends DBFColumn {
+        private final boolean[] values;
+
+        BooleanColumn(DBFField field, int capacity) {
+            super(field, capacity);
+            this.values = new boolean[capacity];
+        }
+
+        @Override
+        void read(byte[] b, int record, int row) {
+            int value = FieldParser.parseLogical(b, record + offset, length);
+            values[row] = value > 0;
+            if (value < 0)
+                setNull(row);
+        }
+
+        /**
+         * Returns the values, of which the first <code>getSize()</code> of
+         * the batch are filled.
+         *
+         * @return the values
+         */
+        public boolean[] getValues() {
+            return values;
+        }
+
+        public boolean get(int row) {
+            return values[row];
+        }
+    }
+
+    /**
+     * Column of fixed-width character values, holding the bytes as stored.
+     * If the field has a dictionary, the column also holds the id of the
+     * value of each row, so grouping or comparing rows can use ints.
+     */
+    public static class CharColumn extends DBFColumn {
+        private final byte[] values;
+        private final DBFDictionary dictionary;
+        private final DBFCharset charset;
+        private final int[] ids;
+
+        CharColumn(DBFField field, DBFDictionary dictionary, DBFCharset charset, int capacity) {
+            super(field, capacity);
+            this.values = new byte[capacity * field.getLength()];
+            this.dictionary = dictionary;
+            this.charset = charset;
+            this.ids = dictionary != null ? new int[capacity] : null;
+        }
+
+        @Override
+        void read(byte[] b, int record, int row) {
+            int pos = record + offset;
+            System.arraycopy(b, pos, values, row * length, length);
+            if (FieldParser.isBlank(b, pos, length))
+                setNull(row);
+            if (ids != null)
+                ids[row] = dictionary.lookup(b, pos);
+        }
+
+        /**
+         * Returns the values, one after the other, each the length of the
+         * field.
+         *
+         * @return the values
+         */
+        public byte[] getValues() {
+            return values;
+        }
+
+        /**
+         * Returns the dictionary the ids refer to.
+         *
+         * @return the dictionary, or <code>null</code> if the field has none
+         */
+        public DBFDictionary getDictionary() {
+            return dictionary;
+        }
+
+        /**
+         * Returns the dictionary id of the value of a row.
+         *
+         * @param row the row
+         * @return the id, or -1 if the field has no dictionary or it was off
+         */
+        public int getId(int row) {
+            return ids != null ? ids[row] : -1;
+        }
+
+        /**
+         * Returns the value of a row as a string, without leading and
+         * trailing spaces, decoded with the charset of the reader.  Values
+         * in the dictionary are shared rather than allocated.
+         *
+         * @param row the row
+         * @return the value
+         */
+        public String getString(int row) {
+            int id = getId(row);
+            if (id >= 0)
+                return dictionary.getValue(id);
+
+            return charset.decode(values, row * length, length);
+        }
+    }
+}
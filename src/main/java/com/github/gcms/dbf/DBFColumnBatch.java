@@ -0,0 +1,130 @@
+package com.github.gcms.dbf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Batch of records held column by column, each field in a primitive array
+ * with a null bitmap, see <code>DBFColumn</code>.  A batch is created by
+ * <code>DBFReader.createBatch</code> and refilled by
+ * <code>DBFReader.nextBatch</code>, so scanning a file allocates nothing but
+ * the batch itself.
+ * <pre>
+ * DBFColumnBatch batch = reader.createBatch(4096);
+ * DBFColumn.IntColumn age = (DBFColumn.IntColumn) batch.getColumn("IDADE");
+ * while (reader.nextBatch(batch)) {
+ *     int[] values = age.getValues();
+ *     for (int i = 0; i &lt; batch.getSize(); i++)
+ *         total += values[i];
+ * }
+ * </pre>
+ */
+public class DBFColumnBatch {
+    private final DBFColumn[] columns;
+    private final List<DBFColumn> columnList;
+    private final long[] recordNumbers;
+    private int size;
+
+    DBFColumnBatch(List<DBFField> fields, DBFDictionary[] dictionaries, DBFCharset charset, int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Invalid batch capacity: " + capacity);
+
+        this.columns = new DBFColumn[fields.size()];
+        for (int i = 0; i < columns.length; i++)
+            columns[i] = DBFColumn.create(fields.get(i), dictionaries[i], charset, capacity);
+        this.columnList = Collections.unmodifiableList(Arrays.asList(columns));
+        this.recordNumbers = new long[capacity];
+    }
+
+    /**
+     * Returns the number of rows in the batch.
+     *
+     * @return the number of rows
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of rows in the batch.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return recordNumbers.length;
+    }
+
+    /**
+     * Returns the columns, in the order of the fields read.
+     *
+     * @return the columns
+     */
+    public List<DBFColumn> getColumns() {
+        return columnList;
+    }
+
+    /**
+     * Returns a column.
+     *
+     * @param index the field index
+     * @return the column
+     */
+    public DBFColumn getColumn(int index) {
+        return columns[index];
+    }
+
+    /**
+     * Finds a column by field name, ignoring case.
+     *
+     * @param name the field name
+     * @return the column, or <code>null</code> if the field is not read
+     */
+    public DBFColumn getColumn(String name) {
+        for (DBFColumn column : columns) {
+            if (column.getField().getName().equalsIgnoreCase(name))
+                return column;
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the number of the record in the file of a row.
+     *
+     * @param row the row
+     * @return the record number, starting from 0
+     */
+    public long getRecordNumber(int row) {
+        return recordNumbers[row];
+    }
+
+    void clear() {
+        for (DBFColumn column : columns)
+            column.clear();
+        size = 0;
+    }
+
+    /**
+     * Appends a record held at an offset of an array.
+     *
+     * @throws NumberFormatException if a field is malformed
+     */
+    void add(byte[] b, int record, long recordNumber) {
+        for (DBFColumn column : columns) {
+            try {
+                column.read(b, record, size);
+            } catch (NumberFormatException e) {
+                throw new NumberFormatException("Wrong value in field " + column.getField().getName()
+                        + " of record " + recordNumber + ": \""
+                        + new String(b, record + column.offset, column.length, StandardCharsets.ISO_8859_1).trim() + "\"");
+            }
+        }
+        recordNumbers[size++] = recordNumber;
+    }
+
+    boolean isFull() {
+        return size == recordNumbers.length;
+    }
+}
@@ -0,0 +1,184 @@
+package com.github.gcms.dbf;
+
+import java.util.Arrays;
+
+/**
+ * Dictionary of the values of a fixed-width field, mapping the field bytes
+ * to a small id and a shared <code>String</code>.  Fields holding codes,
+ * e.g. municipality, sex or CID-10, repeat a few values over many records:
+ * looking them up costs a hash of the bytes instead of a new string.
+ * <p>
+ * Ids are assigned in order of first appearance, from 0.  The dictionary
+ * turns itself off once it holds <code>maxSize</code> values, as the field
+ * is then unlikely to repeat enough for it to pay: lookups of any value then
+ * return -1, while the ids already assigned remain valid.
+ * <p>
+ * A dictionary is not thread-safe.
+ */
+public class DBFDictionary {
+    /**
+     * Default maximum number of values.
+     */
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int length;
+    private final int maxSize;
+    private final DBFCharset charset;
+    private byte[] keys;            /* field bytes, by id */
+    private int[] slots;            /* hash table of id + 1, 0 if empty */
+    private String[] values;        /* canonical values, by id */
+    private int size;
+
+    /**
+     * Creates a dictionary of at most 1024 values, read as ISO-8859-1.
+     *
+     * @param length the field length
+     */
+    public DBFDictionary(int length) {
+        this(length, DEFAULT_MAX_SIZE, DBFCharset.ISO_8859_1);
+    }
+
+    /**
+     * Creates a dictionary.
+     *
+     * @param length  the field length
+     * @param maxSize the number of values past which the dictionary turns
+     *                itself off
+     * @param charset the charset of the values
+     */
+    public DBFDictionary(int length, int maxSize, DBFCharset charset) {
+        if (length < 1 || maxSize < 1)
+            throw new IllegalArgumentException("Invalid length or size");
+
+        this.length = length;
+        this.maxSize = maxSize;
+        this.charset = charset;
+        int capacity = Math.min(INITIAL_CAPACITY, Integer.highestOneBit(maxSize) * 2);
+        this.keys = new byte[capacity / 2 * length];
+        this.slots = new int[capacity];
+        this.values = new String[capacity / 2];
+    }
+
+    /**
+     * Looks up the value of a field, adding it if it is new.
+     *
+     * @param b   the array holding the field
+     * @param pos the offset of the field in b
+     * @return the id of the value, or -1 if the dictionary is off
+     */
+    public int lookup(byte[] b, int pos) {
+        if (slots == null)
+            return -1;
+
+        int mask = slots.length - 1;
+        int slot = hash(b, pos) & mask;
+        for (int id; (id = slots[slot] - 1) >= 0; slot = (slot + 1) & mask) {
+            if (equalBytes(b, pos, id * length))
+                return id;
+        }
+
+        if (size == maxSize) {
+            /* too many values: keep the ones assigned, drop the table */
+            keys = null;
+            slots = null;
+            return -1;
+        }
+
+        int id = size++;
+        if (id * length == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        System.arraycopy(b, pos, keys, id * length, length);
+        values[id] = charset.decode(b, pos, length);
+        slots[slot] = id + 1;
+
+        if (size * 2 > slots.length)
+            rehash(slots.length * 2);
+
+        return id;
+    }
+
+    private void rehash(int capacity) {
+        int mask = capacity - 1;
+        slots = new int[capacity];
+        for (int id = 0; id < size; id++) {
+            int slot = hash(keys, id * length) & mask;
+            while (slots[slot] != 0)
+                slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+    }
+
+    /**
+     * Reads a field as a string, without leading and trailing spaces, shared
+     * with the other fields holding the same bytes while the dictionary is on.
+     *
+     * @param b   the array holding the field
+     * @param pos the offset of the field in b
+     * @return the field value
+     */
+    public String getString(byte[] b, int pos) {
+        int id = lookup(b, pos);
+        return id >= 0 ? values[id] : charset.decode(b, pos, length);
+    }
+
+    /**
+     * Returns the value of an id.
+     *
+     * @param id an id returned by <code>lookup</code>
+     * @return the value, without leading and trailing spaces
+     */
+    public String getValue(int id) {
+        if (id < 0 || id >= size)
+            throw new IndexOutOfBoundsException("No value with id " + id);
+
+        return values[id];
+    }
+
+    /**
+     * Returns the number of values, i.e. of ids assigned.
+     *
+     * @return the number of values
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns <code>true</code> until the dictionary turns itself off.
+     *
+     * @return <code>true</code> if new values are added
+     */
+    public boolean isEnabled() {
+        return slots != null;
+    }
+
+    /**
+     * Returns the length of the field.
+     *
+     * @return the field length
+     */
+    public int getLength() {
+        return length;
+    }
+
+    private boolean equalBytes(byte[] b, int pos, int key) {
+        for (int i = 0; i < length; i++) {
+            if (b[pos + i] != keys[key + i])
+                return false;
+        }
+
+        return true;
+    }
+
+    private int hash(byte[] b, int pos) {
+        int h = 0;
+        for (int i = 0; i < length; i++)
+            h = 31 * h + b[pos + i];
+
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,327 @@
+package com.github.gcms.dbf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Exports the records of a DBF file as CSV, TSV or JSON Lines, in UTF-8.
+ * <p>
+ * Fields are copied from the record buffer of a <code>DBFReader</code> to a
+ * large output buffer, trimmed, escaped and transcoded byte by byte, and the
+ * output buffer is written to a channel when full.  No string is created,
+ * so exporting runs at about the speed of decoding.
+ * <ul>
+ * <li>CSV: a header line of field names, then comma-separated values,
+ * quoted as in RFC 4180 when they hold a comma, a quote or a line break.</li>
+ * <li>TSV: the same, tab-separated, with tabs, line breaks and backslashes
+ * escaped as <code>\t</code>, <code>\n</code>, <code>\r</code> and
+ * <code>\\</code>.</li>
+ * <li>JSONL: an object per record.  Numeric fields are numbers, logical
+ * fields booleans, blank fields <code>null</code> and other fields
+ * strings.</li>
+ * </ul>
+ * Lines end with <code>\n</code>.  Deleted records are not exported.  An
+ * exporter may be reused, but not by several threads at once.
+ * <pre>
+ * try (DBFReader reader = DBFReader.open(dbc).select("IDADE", "SEXO")) {
+ *     new DBFExporter(DBFExporter.Format.CSV).export(reader, channel);
+ * }
+ * </pre>
+ */
+public class DBFExporter {
+    /* default size of the output buffer */
+    private static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    /* most bytes written for a field byte: an escaped control character */
+    private static final int MAX_ESCAPE_LENGTH = 6;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Output formats.
+     */
+    public enum Format {
+        CSV, TSV, JSONL
+    }
+
+    private final Format format;
+    private final int bufferSize;
+
+    private byte[] out;             /* output buffer */
+    private int pos;
+    private byte[][] utf8;          /* UTF-8 bytes of each byte of the charset */
+
+    /**
+     * Creates an exporter with a 1 MB output buffer.
+     *
+     * @param format the output format
+     */
+    public DBFExporter(Format format) {
+        this(format, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates an exporter.
+     *
+     * @param format     the output format
+     * @param bufferSize the size of the output buffer, and so of most
+     *                   writes; it grows to hold at least one record
+     */
+    public DBFExporter(Format format, int bufferSize) {
+        if (bufferSize < 1)
+            throw new IllegalArgumentException("Invalid buffer size: " + bufferSize);
+
+        this.format = format;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Exports a DBC file to a file, replacing it.
+     *
+     * @param source the DBC file
+     * @param target the exported file
+     * @return the number of records exported
+     * @throws IOException if an I/O error occurs or the source is malformed
+     */
+    public long export(Path source, Path target) throws IOException {
+        try (DBFReader reader = DBFReader.open(source);
+             FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return export(reader, channel);
+        }
+    }
+
+    /**
+     * Exports the fields read of the remaining records of a reader.  Neither
+     * the reader nor the channel are closed.
+     *
+     * @param reader the reader, whose charset the text is transcoded from
+     * @param target the channel the export is written to
+     * @return the number of records exported
+     * @throws IOException if an I/O error occurs or a record is malformed
+     */
+    public long export(DBFReader reader, WritableByteChannel target) throws IOException {
+        List<DBFField> fields = reader.getFields();
+        byte[][] names = new byte[fields.size()][];
+        int maxLength = 2;
+        for (int i = 0; i < names.length; i++) {
+            names[i] = name(fields.get(i).getName(), i);
+            maxLength += names[i].length + fields.get(i).getLength() * MAX_ESCAPE_LENGTH + 8;
+        }
+
+        out = new byte[Math.max(bufferSize, maxLength * 2)];
+        pos = 0;
+        utf8 = transcoding(reader.getCharset());
+
+        if (format != Format.JSONL) {
+            for (byte[] name : names) {
+                ensure(name.length * MAX_ESCAPE_LENGTH + 2, target);
+                if (name != names[0])
+                    out[pos++] = separator();
+                text(name, 0, name.length);
+            }
+            out[pos++] = '\n';
+        }
+
+        byte[] b = reader.getBuffer();
+        long count = 0;
+        while (reader.next()) {
+            if (reader.isDeleted())
+                continue;
+
+            ensure(maxLength, target);
+            if (format == Format.JSONL)
+                out[pos++] = '{';
+            for (int i = 0; i < names.length; i++) {
+                if (format == Format.JSONL) {
+                    System.arraycopy(names[i], 0, out, pos, names[i].length);
+                    pos += names[i].length;
+                } else if (i > 0)
+                    out[pos++] = separator();
+
+                int start = reader.getOffset(i), end = start + fields.get(i).getLength();
+                while (start < end && (b[start] & 0xff) <= ' ')
+                    start++;
+                while (end > start && (b[end - 1] & 0xff) <= ' ')
+                    end--;
+
+                if (format == Format.JSONL)
+                    json(fields.get(i), b, start, end);
+                else
+                    text(b, start, end);
+            }
+            if (format == Format.JSONL)
+                out[pos++] = '}';
+            out[pos++] = '\n';
+            count++;
+        }
+
+        flush(target);
+        out = null;
+        return count;
+    }
+
+    private byte separator() {
+        return (byte) (format == Format.TSV ? '\t' : ',');
+    }
+
+    /* bytes written before the value of a field */
+    private byte[] name(String name, int index) {
+        if (format != Format.JSONL)
+            return name.getBytes(StandardCharsets.ISO_8859_1);
+
+        return ((index == 0 ? "\"" : ",\"") + name + "\":").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[][] transcoding(DBFCharset charset) {
+        byte[][] table = new byte[256][];
+        for (int i = 0; i < 256; i++)
+            table[i] = String.valueOf(charset.toChar((byte) i)).getBytes(StandardCharsets.UTF_8);
+
+        return table;
+    }
+
+    /**
+     * Writes a CSV or TSV value.
+     */
+    private void text(byte[] b, int start, int end) {
+        if (format == Format.CSV) {
+            boolean quote = false;
+            for (int i = start; i < end && !quote; i++)
+                quote = b[i] == ',' || b[i] == '"' || b[i] == '\n' || b[i] == '\r';
+
+            if (quote)
+                out[pos++] = '"';
+            for (int i = start; i < end; i++) {
+                if (b[i] == '"')
+                    out[pos++] = '"';
+                put(b[i]);
+            }
+            if (quote)
+                out[pos++] = '"';
+        } else {
+            for (int i = start; i < end; i++) {
+                byte c = b[i];
+                if (c == '\t' || c == '\n' || c == '\r' || c == '\\') {
+                    out[pos++] = '\\';
+                    out[pos++] = (byte) (c == '\t' ? 't' : c == '\n' ? 'n' : c == '\r' ? 'r' : '\\');
+                } else {
+                    put(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a JSON value.
+     */
+    private void json(DBFField field, byte[] b, int start, int end) {
+        if (start == end) {
+            literal("null");
+            return;
+        }
+
+        switch (field.getType()) {
+            case 'N':
+            case 'F':
+                if (isJsonNumber(b, start, end)) {
+                    System.arraycopy(b, start, out, pos, end - start);
+                    pos += end - start;
+                    return;
+                }
+                break;
+            case 'L':
+                switch (b[start]) {
+                    case 'T': case 't': case 'Y': case 'y':
+                        literal("true");
+                        return;
+                    case 'F': case 'f': case 'N': case 'n':
+                        literal("false");
+                        return;
+                    case '?':
+                        literal("null");
+                        return;
+                }
+                break;
+        }
+
+        out[pos++] = '"';
+        for (int i = start; i < end; i++) {
+            byte c = b[i];
+            if (c == '"' || c == '\\') {
+                out[pos++] = '\\';
+                out[pos++] = c;
+            } else if (c >= 0 && c < ' ') {
+                out[pos++] = '\\';
+                out[pos++] = 'u';
+                out[pos++] = '0';
+                out[pos++] = '0';
+                out[pos++] = HEX[c >> 4];
+                out[pos++] = HEX[c & 0xf];
+            } else {
+                put(c);
+            }
+        }
+        out[pos++] = '"';
+    }
+
+    private void literal(String s) {
+        for (int i = 0; i < s.length(); i++)
+            out[pos++] = (byte) s.charAt(i);
+    }
+
+    /* copies a byte, transcoded to UTF-8 */
+    private void put(byte c) {
+        if (c >= 0) {
+            out[pos++] = c;
+        } else {
+            byte[] bytes = utf8[c & 0xff];
+            for (byte u : bytes)
+                out[pos++] = u;
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if a trimmed numeric field is a valid JSON
+     * number, which xBase numbers such as "+1", ".5" or "1." are not.
+     */
+    private static boolean isJsonNumber(byte[] b, int pos, int end) {
+        if (b[pos] == '-')
+            pos++;
+        int digits = pos;
+        while (pos < end && b[pos] >= '0' && b[pos] <= '9')
+            pos++;
+        if (pos == digits || b[digits] == '0' && pos - digits > 1)
+            return false;
+        if (pos < end && b[pos] == '.') {
+            int decimals = ++pos;
+            while (pos < end && b[pos] >= '0' && b[pos] <= '9')
+                pos++;
+            if (pos == decimals)
+                return false;
+        }
+
+        return pos == end;
+    }
+
+    private void ensure(int length, WritableByteChannel target) throws IOException {
+        if (out.length - pos < length) {
+            flush(target);
+            if (out.length < length)
+                out = new byte[length];
+        }
+    }
+
+    private void flush(WritableByteChannel target) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(out, 0, pos);
+        while (buffer.hasRemaining())
+            target.write(buffer);
+        pos = 0;
+    }
+}
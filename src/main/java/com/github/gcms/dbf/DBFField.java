@@ -0,0 +1,83 @@
+package com.github.gcms.dbf;
+
+/**
+ * Field descriptor of a DBF file.
+ */
+public class DBFField {
+    private final int index;
+    private final String name;
+    private final char type;
+    private final int offset;       /* offset in the record, after the deletion flag */
+    private final int length;
+    private final int decimalCount;
+
+    DBFField(int index, String name, char type, int offset, int length, int decimalCount) {
+        this.index = index;
+        this.name = name;
+        this.type = type;
+        this.offset = offset;
+        this.length = length;
+        this.decimalCount = decimalCount;
+    }
+
+    /**
+     * Returns the position of the field in the record, starting from 0.
+     *
+     * @return the field index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the field name.
+     *
+     * @return the field name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the field type, e.g. <code>'C'</code> for character or
+     * <code>'N'</code> for numeric fields.
+     *
+     * @return the field type
+     */
+    public char getType() {
+        return type;
+    }
+
+    /**
+     * Returns the offset of the field in the record.  The deletion flag is
+     * the first byte of a record, so the first field is at offset 1.
+     *
+     * @return the field offset
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the field length in bytes.
+     *
+     * @return the field length
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the number of decimal places of a numeric field.
+     *
+     * @return the decimal count
+     */
+    public int getDecimalCount() {
+        return decimalCount;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + type + "(" + length + (decimalCount > 0 ? "," + decimalCount : "") + ")";
+    }
+}
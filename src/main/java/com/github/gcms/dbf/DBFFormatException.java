@@ -0,0 +1,13 @@
+package com.github.gcms.dbf;
+
+import java.io.IOException;
+
+/**
+ * Signals a malformed DBF input.
+ */
+public class DBFFormatException extends IOException {
+
+    DBFFormatException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,196 @@
+package com.github.gcms.dbf;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Header of a DBF file: record count, record length and field descriptors.
+ */
+public class DBFHeader {
+    private static final int PREFIX_LENGTH = 32;        /* bytes before the field descriptors */
+    private static final int DESCRIPTOR_LENGTH = 32;
+    private static final int TERMINATOR = 0x0d;         /* ends the field descriptors */
+
+    private final byte[] data;
+    private final List<DBFField> fields;
+
+    private DBFHeader(byte[] data, List<DBFField> fields) {
+        this.data = data;
+        this.fields = fields;
+    }
+
+    /**
+     * Reads the header from the beginning of a DBF stream.  The stream is left
+     * at the first record.
+     *
+     * @param in the DBF stream
+     * @return the header
+     * @throws IOException if an I/O error occurs or the header is malformed
+     */
+    public static DBFHeader read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        try {
+            byte[] start = new byte[PREFIX_LENGTH];
+            data.readFully(start);
+
+            int headerLength = readShort(start, 8);
+            if (headerLength < PREFIX_LENGTH + 1)
+                throw new DBFFormatException("Wrong DBF header length: " + headerLength);
+
+            byte[] header = Arrays.copyOf(start, headerLength);
+            data.readFully(header, PREFIX_LENGTH, headerLength - PREFIX_LENGTH);
+
+            return parse(header);
+        } catch (EOFException e) {
+            throw new DBFFormatException("Wrong DBF header format, premature end of file");
+        }
+    }
+
+    /**
+     * Parses a header, e.g. as returned by <code>DBCProcessor.readHeader</code>.
+     *
+     * @param header the header bytes
+     * @return the header
+     * @throws DBFFormatException if the header is malformed
+     */
+    public static DBFHeader parse(byte[] header) throws DBFFormatException {
+        if (header.length < PREFIX_LENGTH + 1 || readShort(header, 8) != header.length)
+            throw new DBFFormatException("Wrong DBF header length: " + header.length);
+
+        int recordLength = readShort(header, 10);
+        List<DBFField> fields = new ArrayList<>();
+        int offset = 1;     /* after the deletion flag */
+        for (int pos = PREFIX_LENGTH; header[pos] != TERMINATOR; pos += DESCRIPTOR_LENGTH) {
+            if (pos + DESCRIPTOR_LENGTH >= header.length)   /* no room left for the terminator */
+                throw new DBFFormatException("Wrong DBF header format, field descriptors not terminated");
+
+            int nameLength = 0;
+            while (nameLength < 11 && header[pos + nameLength] != 0)
+                nameLength++;
+
+            String name = new String(header, pos, nameLength, StandardCharsets.ISO_8859_1).trim();
+            int length = header[pos + 16] & 0xff;
+            int decimalCount = header[pos + 17] & 0xff;
+
+            fields.add(new DBFField(fields.size(), name, (char) (header[pos + 11] & 0xff), offset, length,
+                    decimalCount));
+            offset += length;
+        }
+
+        if (offset > recordLength)
+            throw new DBFFormatException("Wrong DBF header format, fields longer than the record: "
+                    + offset + " > " + recordLength);
+
+        return new DBFHeader(header, Collections.unmodifiableList(fields));
+    }
+
+    private static int readShort(byte[] b, int pos) {
+        return (b[pos] & 0xff) | (b[pos + 1] & 0xff) << 8;
+    }
+
+    /**
+     * Returns the version byte, the first of the header.
+     *
+     * @return the version
+     */
+    public int getVersion() {
+        return data[0] & 0xff;
+    }
+
+    /**
+     * Returns the language driver id, byte 29 of the header, which tells
+     * the code page of the text, e.g. 2 for CP850.
+     *
+     * @return the language driver id, 0 if none
+     * @see DBFCharset#forLanguageDriver(int)
+     */
+    public int getLanguageDriver() {
+        return data[29] & 0xff;
+    }
+
+    /**
+     * Returns the number of records, including deleted ones.
+     *
+     * @return the number of records
+     */
+    public long getRecordCount() {
+        return readShort(data, 4) | (long) readShort(data, 6) << 16;
+    }
+
+    /**
+     * Returns the header length, i.e. the offset of the first record.
+     *
+     * @return the header length
+     */
+    public int getHeaderLength() {
+        return data.length;
+    }
+
+    /**
+     * Returns the length of a record, including the deletion flag.
+     *
+     * @return the record length
+     */
+    public int getRecordLength() {
+        return readShort(data, 10);
+    }
+
+    /**
+     * Returns the number of fields of a record.
+     *
+     * @return the number of fields
+     */
+    public int getFieldCount() {
+        return fields.size();
+    }
+
+    /**
+     * Returns a field descriptor.
+     *
+     * @param index the field index
+     * @return the field descriptor
+     */
+    public DBFField getField(int index) {
+        return fields.get(index);
+    }
+
+    /**
+     * Returns the field descriptors, in record order.
+     *
+     * @return the field descriptors
+     */
+    public List<DBFField> getFields() {
+        return fields;
+    }
+
+    /**
+     * Finds a field by name, ignoring case.
+     *
+     * @param name the field name
+     * @return the field index, or -1 if there is no such field
+     */
+    public int indexOf(String name) {
+        for (DBFField field : fields) {
+            if (field.getName().equalsIgnoreCase(name))
+                return field.getIndex();
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns a copy of the header bytes.
+     *
+     * @return the header bytes
+     */
+    public byte[] getBytes() {
+        return data.clone();
+    }
+}
@@ -0,0 +1,254 @@
+package com.github.gcms.dbf;
+
+import java.util.Arrays;
+
+/**
+ * Condition on the fields of a DBF record, tested on the record bytes.
+ * <p>
+ * Values are given as text, as returned by <code>getString</code>, and are
+ * encoded in the charset of the reader and padded to the width of the field
+ * when the predicate is compiled against a header:
+ * character fields are left aligned and numeric fields right aligned, both
+ * padded with spaces.  Records are then tested by comparing bytes, so
+ * rejected records are never converted.
+ * <pre>
+ * reader.filter(DBFPredicate.prefix("MUNIC_RES", "52").and(DBFPredicate.in("SEXO", "1", "3")));
+ * </pre>
+ * Ranges compare the padded bytes, which for numeric fields is the numeric
+ * order only for non-negative values with the same number of decimals.
+ */
+public abstract class DBFPredicate {
+
+    /**
+     * Compiled predicate, testing records at an offset of an array.
+     */
+    interface Matcher {
+        boolean matches(byte[] b, int record);
+    }
+
+    /**
+     * Compiles the predicate for the records of a file.
+     *
+     * @param header  the header of the file
+     * @param charset the charset values are encoded with
+     * @return the compiled predicate
+     * @throws IllegalArgumentException if a field is not in the header
+     */
+    abstract Matcher compile(DBFHeader header, DBFCharset charset);
+
+    /**
+     * Matches records whose field equals a value.
+     *
+     * @param field the field name
+     * @param value the value
+     * @return the predicate
+     */
+    public static DBFPredicate equal(String field, String value) {
+        return in(field, value);
+    }
+
+    /**
+     * Matches records whose field equals one of the values.  Values are
+     * looked up in a hash table, so long lists cost no more than short ones.
+     *
+     * @param field  the field name
+     * @param values the values
+     * @return the predicate
+     */
+    public static DBFPredicate in(String field, String... values) {
+        return new DBFPredicate() {
+            @Override
+            Matcher compile(DBFHeader header, DBFCharset charset) {
+                DBFField f = field(header, field);
+                int offset = f.getOffset(), length = f.getLength();
+
+                byte[][] padded = new byte[values.length][];
+                int count = 0;
+                for (String value : values) {
+                    byte[] b = pad(f, value, charset);
+                    if (b != null)
+                        padded[count++] = b;
+                }
+
+                if (count == 0)
+                    return (b, record) -> false;
+                if (count == 1) {
+                    byte[] value = padded[0];
+                    return (b, record) -> equalBytes(b, record + offset, value, length);
+                }
+
+                /* open addressing, at most half full */
+                int mask = Integer.highestOneBit(count * 4 - 1) - 1;
+                byte[][] table = new byte[mask + 1][];
+                for (int i = 0; i < count; i++) {
+                    int slot = hash(padded[i], 0, length) & mask;
+                    while (table[slot] != null && !Arrays.equals(table[slot], padded[i]))
+                        slot = (slot + 1) & mask;
+                    table[slot] = padded[i];
+                }
+
+                return (b, record) -> {
+                    int pos = record + offset;
+                    for (int slot = hash(b, pos, length) & mask; table[slot] != null; slot = (slot + 1) & mask) {
+                        if (equalBytes(b, pos, table[slot], length))
+                            return true;
+                    }
+                    return false;
+                };
+            }
+        };
+    }
+
+    /**
+     * Matches records whose field starts with a prefix.  The prefix is
+     * compared with the first bytes of the field, as stored.
+     *
+     * @param field  the field name
+     * @param prefix the prefix
+     * @return the predicate
+     */
+    public static DBFPredicate prefix(String field, String prefix) {
+        return new DBFPredicate() {
+            @Override
+            Matcher compile(DBFHeader header, DBFCharset charset) {
+                DBFField f = field(header, field);
+                int offset = f.getOffset();
+                byte[] value = charset.encode(prefix);
+                if (value == null || value.length > f.getLength())
+                    return (b, record) -> false;
+
+                return (b, record) -> equalBytes(b, record + offset, value, value.length);
+            }
+        };
+    }
+
+    /**
+     * Matches records whose field is between two values, inclusive.
+     *
+     * @param field the field name
+     * @param low   the lowest value, or <code>null</code> for no lower bound
+     * @param high  the highest value, or <code>null</code> for no upper bound
+     * @return the predicate
+     */
+    public static DBFPredicate range(String field, String low, String high) {
+        return new DBFPredicate() {
+            @Override
+            Matcher compile(DBFHeader header, DBFCharset charset) {
+                DBFField f = field(header, field);
+                int offset = f.getOffset(), length = f.getLength();
+                byte[] from = low != null ? pad(f, low, charset) : null;
+                byte[] to = high != null ? pad(f, high, charset) : null;
+                if (low != null && from == null || high != null && to == null)
+                    throw new IllegalArgumentException("Range bound longer than field " + f.getName()
+                            + " or not in charset " + charset);
+
+                return (b, record) -> (from == null || compare(b, record + offset, from, length) >= 0)
+                        && (to == null || compare(b, record + offset, to, length) <= 0);
+            }
+        };
+    }
+
+    /**
+     * Matches records matched by both this and another predicate.
+     *
+     * @param other the other predicate
+     * @return the predicate
+     */
+    public DBFPredicate and(DBFPredicate other) {
+        DBFPredicate self = this;
+        return new DBFPredicate() {
+            @Override
+            Matcher compile(DBFHeader header, DBFCharset charset) {
+                Matcher a = self.compile(header, charset), b = other.compile(header, charset);
+                return (bytes, record) -> a.matches(bytes, record) && b.matches(bytes, record);
+            }
+        };
+    }
+
+    /**
+     * Matches records matched by this or another predicate.
+     *
+     * @param other the other predicate
+     * @return the predicate
+     */
+    public DBFPredicate or(DBFPredicate other) {
+        DBFPredicate self = this;
+        return new DBFPredicate() {
+            @Override
+            Matcher compile(DBFHeader header, DBFCharset charset) {
+                Matcher a = self.compile(header, charset), b = other.compile(header, charset);
+                return (bytes, record) -> a.matches(bytes, record) || b.matches(bytes, record);
+            }
+        };
+    }
+
+    /**
+     * Matches records not matched by this predicate.
+     *
+     * @return the predicate
+     */
+    public DBFPredicate negate() {
+        DBFPredicate self = this;
+        return new DBFPredicate() {
+            @Override
+            Matcher compile(DBFHeader header, DBFCharset charset) {
+                Matcher a = self.compile(header, charset);
+                return (bytes, record) -> !a.matches(bytes, record);
+            }
+        };
+    }
+
+    private static DBFField field(DBFHeader header, String name) {
+        int index = header.indexOf(name);
+        if (index < 0)
+            throw new IllegalArgumentException("No field named " + name);
+
+        return header.getField(index);
+    }
+
+    /**
+     * Pads a value to the width of a field, as it would be stored.
+     *
+     * @return the padded value, or <code>null</code> if it is too long or
+     * not in the charset
+     */
+    private static byte[] pad(DBFField field, String value, DBFCharset charset) {
+        byte[] b = charset.encode(value);
+        if (b == null || b.length > field.getLength())
+            return null;
+
+        byte[] padded = new byte[field.getLength()];
+        Arrays.fill(padded, (byte) ' ');
+        boolean right = field.getType() == 'N' || field.getType() == 'F';
+        System.arraycopy(b, 0, padded, right ? padded.length - b.length : 0, b.length);
+
+        return padded;
+    }
+
+    private static boolean equalBytes(byte[] b, int pos, byte[] value, int length) {
+        for (int i = 0; i < length; i++) {
+            if (b[pos + i] != value[i])
+                return false;
+        }
+
+        return true;
+    }
+
+    private static int compare(byte[] b, int pos, byte[] value, int length) {
+        for (int i = 0; i < length; i++) {
+            int diff = (b[pos + i] & 0xff) - (value[i] & 0xff);
+            if (diff != 0)
+                return diff;
+        }
+
+        return 0;
+    }
+
+    private static int hash(byte[] b, int pos, int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++)
+            h = 31 * h + b[pos + i];
+
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,485 @@
+package com.github.gcms.dbf;
+
+import com.github.gcms.dbc.DBCInputStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the records of a DBF file, e.g. as decoded by a
+ * <code>DBCInputStream</code>.
+ * <p>
+ * The reader is a cursor over the records: <code>next</code> moves it to the
+ * next record, whose fields are then read in place from an internal buffer
+ * holding many records.  No object is allocated per record, except by
+ * <code>getString</code>; short character fields share the strings of
+ * repeated values through a <code>DBFDictionary</code>.
+ * <p>
+ * Reading a few fields of wide records is cheaper with <code>select</code>:
+ * field indexes then refer to the selected fields only, the other fields are
+ * never copied or converted, and <code>getRow</code> gives the selected
+ * fields as a compact fixed-width row.  Likewise, <code>filter</code> skips
+ * the records not matched by a predicate, testing the record bytes.
+ * <pre>
+ * try (DBFReader reader = DBFReader.open(path).select("IDADE", "SEXO")) {
+ *     int age = reader.indexOf("IDADE");
+ *     while (reader.next()) {
+ *         if (!reader.isDeleted())
+ *             total += reader.getInt(age);
+ *     }
+ * }
+ * </pre>
+ * Records can also be read as a <code>Stream</code> of <code>DBFRecord</code>
+ * values, see <code>stream</code>, which scales across cores when parallel.
+ * <p>
+ * Text is decoded in the code page of the language driver of the header,
+ * e.g. CP850, or ISO-8859-1 if it has none; see <code>charset</code>.
+ */
+public class DBFReader extends AbstractDBFRecord implements Closeable {
+    /* default size of the record buffer */
+    private static final int DEFAULT_BUFFER_SIZE = 1024 * 64;
+
+    /* default number of records handed to each parallel task */
+    private static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private static final byte END_OF_FILE = 0x1a;
+
+    /* longest character field given a dictionary */
+    private static final int MAX_DICTIONARY_LENGTH = 32;
+
+    private final InputStream in;
+    private final DBFHeader header;
+    private final int recordLength;
+    private int[] rowOffsets;           /* field offsets in a compact row */
+    private int rowLength;              /* total length of the selected fields */
+    private DBFPredicate predicate;     /* filter, if any */
+    private DBFPredicate.Matcher matcher;   /* filter compiled for the charset */
+
+    private final byte[] buffer;        /* whole records, the record data */
+    private int limit;                  /* end of the records in buffer */
+    private boolean eof;
+
+    /**
+     * Creates a reader for a DBF stream, reading its header.
+     *
+     * @param in the DBF stream, at its beginning
+     * @throws IOException if an I/O error occurs or the header is malformed
+     */
+    public DBFReader(InputStream in) throws IOException {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a reader for a DBF stream, reading its header.
+     *
+     * @param in         the DBF stream, at its beginning
+     * @param bufferSize the size of the record buffer; it always holds at
+     *                   least one record
+     * @throws IOException if an I/O error occurs or the header is malformed
+     */
+    public DBFReader(InputStream in, int bufferSize) throws IOException {
+        this.in = in;
+        this.header = DBFHeader.read(in);
+        this.recordLength = Math.max(header.getRecordLength(), 1);
+        this.charset = DBFCharset.forLanguageDriver(header.getLanguageDriver());
+
+        setFields(header.getFields());
+
+        this.buffer = new byte[Math.max(bufferSize / recordLength, 1) * recordLength];
+        this.data = buffer;
+    }
+
+    /**
+     * Opens a DBC file.
+     *
+     * @param path the DBC file
+     * @return a reader for the records of the file
+     * @throws IOException if an I/O error occurs or the file is malformed
+     */
+    public static DBFReader open(Path path) throws IOException {
+        InputStream in = DBCInputStream.open(path);
+        try {
+            return new DBFReader(in);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the DBF header.
+     *
+     * @return the header
+     */
+    public DBFHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * Selects the fields to read, in the given order.  Field indexes passed
+     * to the accessors then refer to the position in <code>names</code>.
+     * This must be called before the first record is read.
+     *
+     * @param names the field names, ignoring case
+     * @return this reader
+     * @throws IllegalArgumentException if there is no field with one of the names
+     * @throws IllegalStateException    if records have been read already
+     */
+    public DBFReader select(String... names) {
+        if (recordNumber >= 0)
+            throw new IllegalStateException("Fields selected after reading records");
+
+        DBFField[] selected = new DBFField[names.length];
+        for (int i = 0; i < names.length; i++) {
+            int index = header.indexOf(names[i]);
+            if (index < 0)
+                throw new IllegalArgumentException("No field named " + names[i]);
+
+            selected[i] = header.getField(index);
+        }
+
+        setFields(Arrays.asList(selected));
+        return this;
+    }
+
+    private void setFields(List<DBFField> fields) {
+        this.fields = Collections.unmodifiableList(fields);
+        this.offsets = new int[fields.size()];
+        this.lengths = new int[fields.size()];
+        this.rowOffsets = new int[fields.size()];
+        this.dictionaries = new DBFDictionary[fields.size()];
+        this.rowLength = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = fields.get(i).getOffset();
+            lengths[i] = fields.get(i).getLength();
+            rowOffsets[i] = 1 + rowLength;
+            rowLength += lengths[i];
+            if (fields.get(i).getType() == 'C' && lengths[i] > 0 && lengths[i] <= MAX_DICTIONARY_LENGTH)
+                dictionaries[i] = new DBFDictionary(lengths[i], DBFDictionary.DEFAULT_MAX_SIZE, charset);
+        }
+    }
+
+    /**
+     * Sets the charset text fields are decoded with, instead of the one of
+     * the language driver of the header, or ISO-8859-1 if it has none.  This
+     * must be called before the first record is read.
+     *
+     * @param charset the charset
+     * @return this reader
+     * @throws IllegalStateException if records have been read already
+     */
+    public DBFReader charset(DBFCharset charset) {
+        if (recordNumber >= 0)
+            throw new IllegalStateException("Charset set after reading records");
+
+        this.charset = charset;
+        setFields(fields);
+        if (predicate != null)
+            matcher = predicate.compile(header, charset);
+        return this;
+    }
+
+    /**
+     * Returns the charset text fields are decoded with.
+     *
+     * @return the charset
+     */
+    public DBFCharset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Returns the dictionary of a field, through which <code>getString</code>
+     * and the columns of batches share the strings of repeated values.
+     * Character fields of up to 32 bytes have one.
+     *
+     * @param field the field index
+     * @return the dictionary, or <code>null</code> if the field has none
+     */
+    public DBFDictionary getDictionary(int field) {
+        return dictionaries[field];
+    }
+
+    /**
+     * Only reads the records matched by a predicate.  The predicate is
+     * tested on the record bytes, before any field is read, and may refer
+     * to fields which are not selected.  Its values are encoded in the
+     * charset of the reader, also after a later call to <code>charset</code>.
+     * This must be called before the first record is read.
+     *
+     * @param predicate the predicate
+     * @return this reader
+     * @throws IllegalArgumentException if a field of the predicate is not in the file
+     * @throws IllegalStateException    if records have been read already
+     */
+    public DBFReader filter(DBFPredicate predicate) {
+        if (recordNumber >= 0)
+            throw new IllegalStateException("Filter set after reading records");
+
+        this.predicate = predicate;
+        matcher = predicate.compile(header, charset);
+        return this;
+    }
+
+    /**
+     * Moves the cursor to the next record, skipping the records not matched
+     * by the filter if there is one.  Records are read up to the record count
+     * of the header or the end of the file, whichever comes first.
+     *
+     * @return <code>true</code> if there is a record, <code>false</code> at the end
+     * @throws IOException if an I/O error occurs or the last record is incomplete
+     */
+    public boolean next() throws IOException {
+        do {
+            if (recordNumber >= 0)
+                record += recordLength;
+
+            if (record >= limit && !fill())
+                return false;
+
+            if (buffer[record] == END_OF_FILE) {
+                eof = true;
+                limit = record;
+                return false;
+            }
+
+            recordNumber++;
+        } while (matcher != null && !matcher.matches(buffer, record));
+
+        return true;
+    }
+
+    /**
+     * Reads as many whole records as fit in the buffer, up to the record
+     * count.
+     */
+    private boolean fill() throws IOException {
+        long left = header.getRecordCount() - recordNumber - 1;
+        if (eof || left <= 0)
+            return false;
+
+        int len = (int) Math.min(buffer.length, left * recordLength);
+        int filled = 0;
+        while (filled < len) {
+            int n = in.read(buffer, filled, len - filled);
+            if (n < 0)
+                break;
+            filled += n;
+        }
+
+        /* the end of file marker may be all there is after the last record */
+        int partial = filled % recordLength;
+        if (partial > 1 || partial == 1 && buffer[filled - 1] != END_OF_FILE)
+            throw new DBFFormatException("Wrong DBF format, premature end of file in record "
+                    + (recordNumber + 1 + filled / recordLength));
+
+        eof = filled < len;
+        record = 0;
+        limit = filled;
+
+        return limit > 0;
+    }
+
+    /**
+     * Returns the length of the rows given by <code>getRow</code>, the sum
+     * of the lengths of the fields read.
+     *
+     * @return the row length
+     */
+    public int getRowLength() {
+        return rowLength;
+    }
+
+    /**
+     * Copies the fields read of the current record, one after the other, as
+     * a fixed-width row of <code>getRowLength()</code> bytes.
+     *
+     * @param dst    the array the row is copied to
+     * @param offset the start offset in dst
+     * @return the row length
+     */
+    public int getRow(byte[] dst, int offset) {
+        int pos = offset;
+        for (int i = 0; i < offsets.length; i++) {
+            System.arraycopy(buffer, record + offsets[i], dst, pos, lengths[i]);
+            pos += lengths[i];
+        }
+
+        return rowLength;
+    }
+
+    /**
+     * Returns the buffer holding the current record, for reading fields in
+     * place.  Its contents change when the cursor moves.
+     *
+     * @return the record buffer
+     * @see #getOffset(int)
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns the offset of a field of the current record in the buffer.
+     *
+     * @param field the field index
+     * @return the offset in <code>getBuffer()</code>
+     */
+    public int getOffset(int field) {
+        return record + offsets[field];
+    }
+
+    /**
+     * Creates a batch for <code>nextBatch</code>, with a column for each
+     * field read.  Select the fields first: columns of unused fields cost
+     * memory and conversion time.
+     *
+     * @param capacity the maximum number of rows
+     * @return the batch
+     */
+    public DBFColumnBatch createBatch(int capacity) {
+        return new DBFColumnBatch(fields, dictionaries, charset, capacity);
+    }
+
+    /**
+     * Reads the next records into a batch, replacing its rows, until it is
+     * full or the records end.  Deleted records are skipped, as are those
+     * not matched by the filter; the record numbers of the rows tell where
+     * they were.
+     *
+     * @param batch a batch created by <code>createBatch</code> of this reader
+     * @return <code>true</code> if the batch holds rows, <code>false</code> at the end
+     * @throws IOException           if an I/O error occurs or the last record is incomplete
+     * @throws NumberFormatException if a field does not match its type
+     */
+    public boolean nextBatch(DBFColumnBatch batch) throws IOException {
+        batch.clear();
+        while (!batch.isFull() && next()) {
+            if (buffer[record] != DELETED)
+                batch.add(buffer, record, recordNumber);
+        }
+
+        return batch.getSize() > 0;
+    }
+
+    /**
+     * Returns the records as a stream, decoded on the thread consuming it.
+     * The stream is ordered and may be made parallel: records are then
+     * decoded in batches of 1024, which are processed by other threads
+     * while the next batch is decoded.  Closing the stream closes the reader.
+     *
+     * @return the stream of records
+     * @see #stream(int)
+     */
+    public Stream<DBFRecord> stream() {
+        return stream(DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Returns the records as a stream.  Each record is copied out of the
+     * reader buffer, so it can be kept; only the fields read are copied.
+     * I/O errors are thrown as <code>UncheckedIOException</code>.
+     *
+     * @param batchSize the number of records handed to each parallel task
+     * @return the stream of records
+     */
+    public Stream<DBFRecord> stream(int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+
+        return StreamSupport.stream(new RecordSpliterator(batchSize), false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Copies the current record as a compact row, deletion flag first, to a
+     * new record value.
+     */
+    private DBFRecord copy(byte[] dst, int offset) {
+        dst[offset] = data[record];
+        getRow(dst, offset + 1);
+
+        return new DBFRecord(dst, offset, recordNumber, fields, rowOffsets, lengths, charset);
+    }
+
+    /**
+     * Hands the records to parallel tasks in batches, decoding a batch each
+     * time it is split.  Decoding is sequential, but the processing of the
+     * batches is not.
+     */
+    private class RecordSpliterator implements Spliterator<DBFRecord> {
+        private final int batchSize;
+
+        RecordSpliterator(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super DBFRecord> action) {
+            if (!advance())
+                return false;
+
+            action.accept(copy(new byte[rowLength + 1], 0));
+            return true;
+        }
+
+        @Override
+        public Spliterator<DBFRecord> trySplit() {
+            int size = rowLength + 1;
+            byte[] batch = new byte[batchSize * size];
+            DBFRecord[] records = new DBFRecord[batchSize];
+
+            int count = 0;
+            while (count < batchSize && advance()) {
+                records[count] = copy(batch, count * size);
+                count++;
+            }
+
+            return count == 0 ? null : Spliterators.spliterator(records, 0, count, characteristics());
+        }
+
+        private boolean advance() {
+            try {
+                return next();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return Math.max(header.getRecordCount() - recordNumber - 1, 0);
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+    }
+
+    /**
+     * Closes the DBF stream.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
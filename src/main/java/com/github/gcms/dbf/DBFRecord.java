@@ -0,0 +1,22 @@
+package com.github.gcms.dbf;
+
+import java.util.List;
+
+/**
+ * Record of a DBF file, as given by <code>DBFReader.stream</code>.  It holds
+ * a copy of the fields read, so unlike the reader cursor it can be kept and
+ * passed to other threads.
+ */
+public class DBFRecord extends AbstractDBFRecord {
+
+    DBFRecord(byte[] data, int record, long recordNumber, List<DBFField> fields, int[] offsets, int[] lengths,
+              DBFCharset charset) {
+        this.data = data;
+        this.record = record;
+        this.recordNumber = recordNumber;
+        this.fields = fields;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.charset = charset;
+    }
+}
@@ -0,0 +1,286 @@
+package com.github.gcms.dbf;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses DBF field bytes to primitive values, without allocating.  Fields
+ * are padded with spaces, which are ignored; blank fields, which is how
+ * xBase stores missing values, are read as 0 and should be told apart with
+ * <code>isBlank</code>.
+ * <pre>
+ * if (!FieldParser.isBlank(b, pos, len))
+ *     total += FieldParser.parseScaled(b, pos, len, 2);
+ * </pre>
+ * Malformed fields throw a <code>NumberFormatException</code> without a
+ * message, which callers knowing the field and record should replace.
+ */
+public final class FieldParser {
+    /* exact powers of ten as doubles */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /* largest integer exactly represented by a double */
+    private static final long MAX_EXACT = 1L << 53;
+
+    private FieldParser() {
+    }
+
+    /**
+     * Returns <code>true</code> if a field holds only spaces.
+     *
+     * @param b   the array holding the field
+     * @param pos the offset of the field in b
+     * @param len the field length
+     * @return <code>true</code> if the field is blank
+     */
+    public static boolean isBlank(byte[] b, int pos, int len) {
+        for (int end = pos + len; pos < end; pos++) {
+            if (b[pos] != ' ')
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Parses an integer, with an optional sign, to an <code>int</code>.
+     *
+     * @param b   the array holding the field
+     * @param pos the offset of the field in b
+     * @param len the field length
+     * @return the value, 0 if the field is blank
+     * @throws NumberFormatException if the field is not an integer or it
+     *                               does not fit in an <code>int</code>
+     */
+    public static int parseInt(byte[] b, int pos, int len) {
+        long value = parseLong(b, pos, len);
+        if (value != (int) value)
+            throw new NumberFormatException();
+
+        return (int) value;
+    }
+
+    /**
+     * Parses an integer, with an optional sign, of up to 18 digits.
+     *
+     * @param b   the array holding the field
+     * @param pos the offset of the field in b
+     * @param len the field length
+     * @return the value, 0 if the field is blank
+     * @throws NumberFormatException if the field is not an integer
+     */
+    public static long parseLong(byte[] b, int pos, int len) {
+        int end = pos + len;
+        while (pos < end && b[pos] == ' ')
+            pos++;
+        while (end > pos && b[end - 1] == ' ')
+            end--;
+        if (pos == end)
+            return 0;
+
+        boolean negative = b[pos] == '-';
+        if (negative || b[pos] == '+')
+            pos++;
+        if (pos == end || end - pos > 18)
+            throw new NumberFormatException();
+
+        long value = 0;
+        while (pos < end) {
+            int digit = b[pos++] - '0';
+            if (digit < 0 || digit > 9)
+                throw new NumberFormatException();
+            value = value * 10 + digit;
+        }
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a decimal number, with an optional sign.  Plain numbers of up
+     * to 15 digits, as stored in N fields, are read exactly; others, e.g.
+     * with an exponent as in F fields, go through
+     * <code>Double.parseDouble</code>.
+     *
+     * @param b   the array holding the field
+     * @param pos the offset of the field in b
+     * @param len the field length
+     * @return the value, 0 if the field is blank
+     * @throws NumberFormatException if the field is not a number
+     */
+    public static double parseDouble(byte[] b, int pos, int len) {
+        int start = pos, end = pos + len;
+        while (pos < end && b[pos] == ' ')
+            pos++;
+        while (end > pos && b[end - 1] == ' ')
+            end--;
+        if (pos == end)
+            return 0;
+
+        boolean negative = b[pos] == '-';
+        if (negative || b[pos] == '+')
+            pos++;
+
+        long mantissa = 0;
+        int digits = 0, scale = -1;
+        for (; pos < end; pos++) {
+            int digit = b[pos] - '0';
+            if (digit >= 0 && digit <= 9) {
+                mantissa = mantissa * 10 + digit;
+                if (++digits > 18)
+                    return parseSlow(b, start, len);
+                if (scale >= 0)
+                    scale++;
+            } else if (b[pos] == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                return parseSlow(b, start, len);
+            }
+        }
+
+        if (digits == 0 || mantissa >= MAX_EXACT)
+            return parseSlow(b, start, len);
+
+        /* both exact, so the quotient is correctly rounded */
+        double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private static double parseSlow(byte[] b, int pos, int len) {
+        return Double.parseDouble(new String(b, pos, len, StandardCharsets.ISO_8859_1).trim());
+    }
+
+    /**
+     * Parses a decimal number, with an optional sign, to a fixed-point
+     * value: the number times 10 to the power of <code>scale</code>, e.g.
+     * 12345 for " 123.45" at scale 2.  Unlike <code>parseDouble</code> this
+     * is exact, so sums of money fields are too.
+     *
+     * @param b     the array holding the field
+     * @param pos   the offset of the field in b
+     * @param len   the field length
+     * @param scale the number of decimals of the result, usually the
+     *              decimal count of the field
+     * @return the unscaled value, 0 if the field is blank
+     * @throws NumberFormatException if the field is not a number, has more
+     *                               decimals than <code>scale</code> or
+     *                               more than 18 digits once scaled
+     */
+    public static long parseScaled(byte[] b, int pos, int len, int scale) {
+        int end = pos + len;
+        while (pos < end && b[pos] == ' ')
+            pos++;
+        while (end > pos && b[end - 1] == ' ')
+            end--;
+        if (pos == end)
+            return 0;
+
+        boolean negative = b[pos] == '-';
+        if (negative || b[pos] == '+')
+            pos++;
+
+        long value = 0;
+        int digits = 0, decimals = -1;
+        for (; pos < end; pos++) {
+            int digit = b[pos] - '0';
+            if (digit >= 0 && digit <= 9) {
+                value = value * 10 + digit;
+                digits++;
+                if (decimals >= 0)
+                    decimals++;
+            } else if (b[pos] == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                throw new NumberFormatException();
+            }
+        }
+
+        decimals = Math.max(decimals, 0);
+        if (digits == 0 || decimals > scale || digits + scale - decimals > 18)
+            throw new NumberFormatException();
+        for (; decimals < scale; decimals++)
+            value *= 10;
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a date, stored as YYYYMMDD in D fields, to the number of days
+     * since 1970-01-01, as <code>LocalDate.ofEpochDay</code> takes it.
+     *
+     * @param b   the array holding the field
+     * @param pos the offset of the field in b
+     * @param len the field length, at least 8
+     * @return the number of days, 0 if the field is blank
+     * @throws NumberFormatException if the field is not a valid date
+     */
+    public static int parseEpochDay(byte[] b, int pos, int len) {
+        if (isBlank(b, pos, len))
+            return 0;
+        if (len < 8)
+            throw new NumberFormatException();
+
+        int year = digits(b, pos, 4);
+        int month = digits(b, pos + 4, 2);
+        int day = digits(b, pos + 6, 2);
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month))
+            throw new NumberFormatException();
+
+        /* days from civil, see http://howardhinnant.github.io/date_algorithms.html */
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yoe = y - era * 400;
+        int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+
+        return era * 146097 + doe - 719468;
+    }
+
+    private static int digits(byte[] b, int pos, int len) {
+        int value = 0;
+        for (int end = pos + len; pos < end; pos++) {
+            int digit = b[pos] - '0';
+            if (digit < 0 || digit > 9)
+                throw new NumberFormatException();
+            value = value * 10 + digit;
+        }
+
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        if (month == 2)
+            return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * Parses a logical value, as stored in L fields.
+     *
+     * @param b   the array holding the field
+     * @param pos the offset of the field in b
+     * @param len the field length
+     * @return 1 for true (T, Y), 0 for false (F, N), -1 if unknown (?, blank)
+     * @throws NumberFormatException if the field is not a logical value
+     */
+    public static int parseLogical(byte[] b, int pos, int len) {
+        int end = pos + len;
+        while (pos < end && b[pos] == ' ')
+            pos++;
+        if (pos == end)
+            return -1;
+
+        switch (b[pos]) {
+            case 'T': case 't': case 'Y': case 'y':
+                return 1;
+            case 'F': case 'f': case 'N': case 'n':
+                return 0;
+            case '?':
+                return -1;
+            default:
+                throw new NumberFormatException();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.gcms.blast;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder events of <code>BlastInputStream</code>, for Java 11 and
+ * later.  Chunks are only timed while a recording has the event enabled.
+ */
+final class BlastEvents {
+    private static final EventType CHUNK = EventType.getEventType(ChunkEvent.class);
+
+    private BlastEvents() {
+    }
+
+    static Object beginChunk() {
+        if (!CHUNK.isEnabled())
+            return null;
+
+        ChunkEvent event = new ChunkEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endChunk(Object event, long bytesIn, int bytesOut) {
+        ChunkEvent chunk = (ChunkEvent) event;
+        chunk.end();
+        if (chunk.shouldCommit()) {
+            chunk.bytesIn = bytesIn;
+            chunk.bytesOut = bytesOut;
+            chunk.commit();
+        }
+    }
+
+    @Name("com.github.gcms.blast.Chunk")
+    @Label("Blast Chunk")
+    @Category({"DBC Reader", "Blast"})
+    @Description("Data decoded by a BlastInputStream to refill its buffer or a read array")
+    static class ChunkEvent extends Event {
+        @Label("Bytes In")
+        @Description("Compressed bytes read from the underlying stream")
+        @DataAmount
+        long bytesIn;
+
+        @Label("Bytes Out")
+        @Description("Bytes decoded")
+        @DataAmount
+        int bytesOut;
+    }
+}
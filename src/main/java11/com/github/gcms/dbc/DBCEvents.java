@@ -0,0 +1,97 @@
+package com.github.gcms.dbc;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder events of <code>DBCInputStream</code>, for Java 11 and
+ * later.  Files and headers are only timed while a recording has their event
+ * enabled.
+ */
+final class DBCEvents {
+    private static final EventType HEADER = EventType.getEventType(HeaderEvent.class);
+    private static final EventType FILE = EventType.getEventType(FileEvent.class);
+
+    /* bytes between the DBF header and the compressed data */
+    private static final int CRC_LENGTH = 4;
+
+    private DBCEvents() {
+    }
+
+    static Object beginHeader() {
+        if (!HEADER.isEnabled())
+            return null;
+
+        HeaderEvent event = new HeaderEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endHeader(Object event, byte[] header) {
+        HeaderEvent parse = (HeaderEvent) event;
+        parse.end();
+        if (parse.shouldCommit()) {
+            parse.headerLength = header.length;
+            parse.fieldCount = DBCProcessor.getFieldCount(header);
+            parse.commit();
+        }
+    }
+
+    static Object beginFile() {
+        if (!FILE.isEnabled())
+            return null;
+
+        FileEvent event = new FileEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endFile(Object event, int headerLength, long bodyIn, long bodyOut) {
+        FileEvent file = (FileEvent) event;
+        file.end();
+        if (file.shouldCommit()) {
+            file.headerLength = headerLength;
+            file.bytesIn = headerLength > 0 ? headerLength + CRC_LENGTH + bodyIn : bodyIn;
+            file.bytesOut = headerLength + bodyOut;
+            file.commit();
+        }
+    }
+
+    @Name("com.github.gcms.dbc.Header")
+    @Label("DBC Header")
+    @Category({"DBC Reader", "DBC"})
+    @Description("DBF header read at the start of a DBC file")
+    static class HeaderEvent extends Event {
+        @Label("Header Length")
+        @DataAmount
+        int headerLength;
+
+        @Label("Field Count")
+        int fieldCount;
+    }
+
+    @Name("com.github.gcms.dbc.File")
+    @Label("DBC File")
+    @Category({"DBC Reader", "DBC"})
+    @Description("DBC file read by a DBCInputStream, from its creation or reset until it is closed")
+    static class FileEvent extends Event {
+        @Label("Header Length")
+        @DataAmount
+        int headerLength;
+
+        @Label("Bytes In")
+        @Description("Bytes read from the underlying stream, which may go past the end of the compressed data")
+        @DataAmount
+        long bytesIn;
+
+        @Label("Bytes Out")
+        @Description("Bytes decoded, including the header and bytes not read by the caller")
+        @DataAmount
+        long bytesOut;
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.gcms.blast;
+
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import static com.github.gcms.TestUtils.getContent;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BlastChannelTest {
+
+    @Test
+    public void testSourceChannel() {
+        ReadableByteChannel source = Channels.newChannel(getClass().getResourceAsStream("/lipsum-ascii.pk"));
+        InputStream decoded = Channels.newInputStream(new BlastChannel(source));
+        InputStream plain = getClass().getResourceAsStream("/lipsum.txt");
+
+        assertEquals(getContent(plain), getContent(decoded));
+    }
+
+    @Test
+    public void testDirectBuffer() throws IOException {
+        ByteBuffer input = ByteBuffer.allocateDirect(8);
+        try (InputStream in = getClass().getResourceAsStream("/test.pk")) {
+            while (input.hasRemaining())
+                input.put((byte) in.read());
+        }
+        input.flip();
+
+        BlastChannel channel = new BlastChannel(input);
+        ByteBuffer output = ByteBuffer.allocateDirect(5);
+        StringBuilder result = new StringBuilder();
+        while (channel.read(output) != -1) {
+            output.flip();
+            while (output.hasRemaining())
+                result.append((char) output.get());
+            output.clear();
+        }
+
+        assertEquals("AIAIAIAIAIAIA", result.toString());
+    }
+
+    @Test
+    public void testStats() throws Exception {
+        assertNull(new BlastChannel(ByteBuffer.allocate(0)).getStats());
+
+        BlastStats.setEnabled(true);
+        try {
+            long streams = BlastStats.getTotals().getStreams();
+            ReadableByteChannel source = Channels.newChannel(getClass().getResourceAsStream("/lipsum-ascii.pk"));
+            BlastChannel channel = new BlastChannel(source);
+            assertEquals(getContent(getClass().getResourceAsStream("/lipsum.txt")),
+                    getContent(Channels.newInputStream(channel)));
+
+            BlastStats stats = channel.getStats();
+            assertTrue(stats.isEncoded());
+            assertEquals(445, stats.getBytesOut());
+            assertEquals(302, stats.getBytesIn());
+            assertEquals(streams + 1, BlastStats.getTotals().getStreams());
+
+            channel.close();
+            assertEquals(streams + 1, BlastStats.getTotals().getStreams());
+            assertEquals(BlastStats.getTotals().getStreams(), ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(new ObjectName("com.github.gcms.blast:type=BlastStats"), "Streams"));
+        } finally {
+            BlastStats.setEnabled(false);
+        }
+    }
+}
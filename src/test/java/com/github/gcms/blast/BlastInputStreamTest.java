@@ -3,10 +3,19 @@ package com.github.gcms.blast;
 
 import org.junit.Test;
 
+import javax.management.ObjectName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
 
 import static com.github.gcms.TestUtils.getContent;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class BlastInputStreamTest {
 
@@ -25,4 +34,116 @@ public class BlastInputStreamTest {
 
         assertEquals(getContent(plain), getContent(decoded));
     }
+
+    @Test
+    public void testLipsumCodedLiterals() {
+        InputStream decoded = new BlastInputStream(getClass().getResourceAsStream("/lipsum-ascii.pk"));
+        InputStream plain = getClass().getResourceAsStream("/lipsum.txt");
+
+        assertEquals(getContent(plain), getContent(decoded));
+    }
+
+    @Test
+    public void testMatchFillingBuffer() throws IOException {
+        /* binary, 4K dictionary: 422 literals, then 20 matches of 518 bytes at
+         * distance 1, the 15th ending exactly at the end of the 8K buffer */
+        BitWriter out = new BitWriter();
+        out.bits(0, 8);
+        out.bits(6, 8);
+        byte[] expected = new byte[422 + 20 * 518];
+        for (int i = 0; i < 422; i++) {
+            expected[i] = (byte) (i * 7);
+            out.bits((i * 7 & 0xff) << 1, 9);
+        }
+        for (int i = 0; i < 20; i++) {
+            out.bits(1, 1);
+            out.code(Blast.LENCODE, 15);
+            out.bits(518 - Blast.BASE[15], Blast.EXTRA[15]);
+            out.code(Blast.DISTCODE, 0);
+            out.bits(0, 6);
+        }
+        Arrays.fill(expected, 422, expected.length, expected[421]);
+        out.bits(1, 1);
+        out.code(Blast.LENCODE, 15);
+        out.bits(519 - Blast.BASE[15], Blast.EXTRA[15]);
+
+        /* read a byte at a time, so symbols are decoded into the internal buffer */
+        InputStream input = new BlastInputStream(new ByteArrayInputStream(out.toByteArray()));
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        int b;
+        while ((b = input.read()) != -1)
+            decoded.write(b);
+
+        assertArrayEquals(expected, decoded.toByteArray());
+    }
+
+    /* writes bits least significant first, as blast reads them */
+    private static class BitWriter {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private int bitbuf, bitcnt;
+
+        void bits(int bits, int len) {
+            bitbuf |= bits << bitcnt;
+            bitcnt += len;
+            while (bitcnt >= 8) {
+                out.write(bitbuf);
+                bitbuf >>>= 8;
+                bitcnt -= 8;
+            }
+        }
+
+        void code(Huffman h, int symbol) {
+            bits(h.m_code[symbol] >>> 4, h.m_code[symbol] & 15);
+        }
+
+        byte[] toByteArray() {
+            if (bitcnt > 0)
+                out.write(bitbuf);
+            return out.toByteArray();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSmallBuffer() {
+        new BlastInputStream(getClass().getResourceAsStream("/lipsum.pk"), 1000, true);
+    }
+
+    @Test
+    public void testReset() throws IOException {
+        BlastInputStream input = new BlastInputStream(getClass().getResourceAsStream("/lipsum.pk"));
+        assertEquals('L', input.read());
+
+        input.reset(getClass().getResourceAsStream("/test.pk"));
+        assertEquals("AIAIAIAIAIAIA", getContent(input));
+
+        input.reset(getClass().getResourceAsStream("/lipsum-ascii.pk"));
+        assertEquals(getContent(getClass().getResourceAsStream("/lipsum.txt")), getContent(input));
+    }
+
+    @Test
+    public void testStats() throws Exception {
+        assertNull(new BlastInputStream(getClass().getResourceAsStream("/test.pk")).getStats());
+
+        BlastStats.setEnabled(true);
+        try {
+            long streams = BlastStats.getTotals().getStreams();
+            BlastInputStream input = new BlastInputStream(getClass().getResourceAsStream("/lipsum-ascii.pk"));
+            assertEquals(getContent(getClass().getResourceAsStream("/lipsum.txt")), getContent(input));
+
+            BlastStats stats = input.getStats();
+            assertTrue(stats.isEncoded());
+            assertEquals(445, stats.getBytesOut());
+            assertEquals(302, stats.getBytesIn());
+            assertEquals(445, stats.getLiterals() + stats.getMatchBytes());
+            assertEquals(stats.getMatches(), Arrays.stream(stats.getMatchLengthHistogram()).sum());
+            assertEquals(stats.getMatches(), Arrays.stream(stats.getMatchDistanceHistogram()).sum());
+
+            input.close();
+            assertEquals(streams + 1, BlastStats.getTotals().getStreams());
+            assertEquals(BlastStats.getTotals().getStreams(), ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(new ObjectName("com.github.gcms.blast:type=BlastStats"), "Streams"));
+        } finally {
+            BlastStats.setEnabled(false);
+        }
+    }
 }
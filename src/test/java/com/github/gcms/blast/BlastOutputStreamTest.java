@@ -0,0 +1,88 @@
+package com.github.gcms.blast;
+
+import com.github.gcms.dbc.DBCInputStream;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.*;
+
+public class BlastOutputStreamTest {
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[1024 * 64];
+        int n;
+        while ((n = in.read(buf)) > 0)
+            out.write(buf, 0, n);
+
+        return out.toByteArray();
+    }
+
+    private static byte[] compress(byte[] data, boolean encoded, int dictSize, int level) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BlastOutputStream blast = new BlastOutputStream(out, encoded, dictSize, level)) {
+            blast.write(data);
+        }
+
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] data) throws IOException {
+        return readAll(new BlastInputStream(new ByteArrayInputStream(data)));
+    }
+
+    @Test
+    public void testSimple() throws IOException {
+        byte[] data = decompress(readAll(getClass().getResourceAsStream("/test.pk")));
+        byte[] compressed = compress(data, false, 1024, BlastOutputStream.DEFAULT_LEVEL);
+
+        assertEquals("AIAIAIAIAIAIA", new String(decompress(compressed)));
+        assertTrue(compressed.length <= 8);
+    }
+
+    @Test
+    public void testLipsumAllModes() throws IOException {
+        byte[] plain = readAll(getClass().getResourceAsStream("/lipsum.txt"));
+
+        for (boolean encoded : new boolean[]{false, true}) {
+            for (int dictSize : new int[]{1024, 2048, 4096}) {
+                for (int level = BlastOutputStream.BEST_SPEED; level <= BlastOutputStream.BEST_COMPRESSION; level++)
+                    assertArrayEquals(plain, decompress(compress(plain, encoded, dictSize, level)));
+            }
+        }
+    }
+
+    @Test
+    public void testLipsumRatio() throws IOException {
+        byte[] plain = readAll(getClass().getResourceAsStream("/lipsum.txt"));
+        int fixtureLength = readAll(getClass().getResourceAsStream("/lipsum.pk")).length;
+
+        byte[] compressed = compress(plain, false, 1024, BlastOutputStream.BEST_COMPRESSION);
+        assertTrue(compressed.length + " > " + fixtureLength, compressed.length <= fixtureLength);
+    }
+
+    @Test
+    public void testLargeRoundTrip() throws IOException {
+        byte[] plain = readAll(new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BlastOutputStream blast = new BlastOutputStream(out)) {
+            for (int i = 0; i < plain.length; i += 1000)
+                blast.write(plain, i, Math.min(1000, plain.length - i));
+            assertEquals(plain.length, blast.getBytesRead());
+        }
+
+        assertArrayEquals(plain, decompress(out.toByteArray()));
+    }
+
+    @Test(expected = IOException.class)
+    public void testWriteAfterFinish() throws IOException {
+        BlastOutputStream blast = new BlastOutputStream(new ByteArrayOutputStream());
+        blast.finish();
+        blast.write(1);
+    }
+}
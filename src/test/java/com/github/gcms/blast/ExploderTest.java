@@ -0,0 +1,94 @@
+package com.github.gcms.blast;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class ExploderTest {
+
+    private byte[] readResource(String name) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = getClass().getResourceAsStream(name)) {
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = in.read(buf)) > 0)
+                out.write(buf, 0, n);
+        }
+
+        return out.toByteArray();
+    }
+
+    private byte[] explode(byte[] compressed, int chunkSize, int outSize) throws IOException {
+        Exploder exploder = new Exploder();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[outSize];
+
+        int pos = 0;
+        while (!exploder.finished()) {
+            if (exploder.needsInput()) {
+                assertTrue("Premature end of input", pos < compressed.length);
+                int len = Math.min(chunkSize, compressed.length - pos);
+                exploder.setInput(compressed, pos, len);
+                pos += len;
+            }
+
+            int n = exploder.explode(buf);
+            out.write(buf, 0, n);
+        }
+
+        assertEquals(out.size(), exploder.getBytesWritten());
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testSimple() throws IOException {
+        byte[] compressed = readResource("/test.pk");
+
+        for (int chunkSize = 1; chunkSize <= compressed.length; chunkSize++)
+            assertEquals("AIAIAIAIAIAIA", new String(explode(compressed, chunkSize, 3)));
+    }
+
+    @Test
+    public void testLipsumByteByByte() throws IOException {
+        byte[] plain = readResource("/lipsum.txt");
+
+        assertArrayEquals(plain, explode(readResource("/lipsum.pk"), 1, 7));
+        assertArrayEquals(plain, explode(readResource("/lipsum-ascii.pk"), 1, 7));
+    }
+
+    @Test
+    public void testLargeOutput() throws IOException {
+        byte[] compressed = readResource("/lipsum-ascii.pk");
+        byte[] plain = readResource("/lipsum.txt");
+
+        assertArrayEquals(plain, explode(compressed, 5, 1024 * 16));
+    }
+
+    @Test
+    public void testByteBuffers() throws IOException {
+        byte[] compressed = readResource("/lipsum.pk");
+        byte[] plain = readResource("/lipsum.txt");
+
+        ByteBuffer in = ByteBuffer.allocateDirect(compressed.length + 3);
+        in.put(compressed).put(new byte[]{1, 2, 3}).flip();
+        ByteBuffer out = ByteBuffer.allocateDirect(plain.length + 10);
+
+        Exploder exploder = new Exploder();
+        exploder.setInput(in);
+        while (!exploder.finished() && !exploder.needsInput())
+            exploder.explode(out);
+
+        assertTrue(exploder.finished());
+        assertEquals(3, exploder.getRemaining());
+        assertEquals(compressed.length, exploder.getBytesRead());
+
+        byte[] result = new byte[out.flip().remaining()];
+        out.get(result);
+        assertArrayEquals(plain, result);
+    }
+}
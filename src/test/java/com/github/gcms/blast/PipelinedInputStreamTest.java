@@ -0,0 +1,139 @@
+package com.github.gcms.blast;
+
+import com.github.gcms.dbc.DBCInputStream;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.github.gcms.TestUtils.assertStreamsEquals;
+import static org.junit.Assert.*;
+
+public class PipelinedInputStreamTest {
+
+    @Test
+    public void testReadAhead() throws IOException {
+        InputStream reference = new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc"));
+
+        try (InputStream pipelined = new BufferedInputStream(new PipelinedInputStream(
+                new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc"))), 3000)) {
+            assertStreamsEquals(reference, pipelined);
+        }
+    }
+
+    @Test
+    public void testSmallBuffers() throws IOException {
+        InputStream reference = new BlastInputStream(getClass().getResourceAsStream("/lipsum.pk"));
+
+        try (InputStream pipelined = new PipelinedInputStream(
+                new BlastInputStream(getClass().getResourceAsStream("/lipsum.pk")), 7, 2, Thread::new)) {
+            assertStreamsEquals(reference, pipelined);
+        }
+    }
+
+    @Test
+    public void testError() throws IOException {
+        InputStream failing = new InputStream() {
+            int count;
+
+            @Override
+            public int read() throws IOException {
+                if (count == 100)
+                    throw new BlastFormatException(2);
+                return count++;
+            }
+        };
+
+        try (InputStream pipelined = new PipelinedInputStream(failing, 64, 2, Thread::new)) {
+            for (int i = 0; i < 100; i++)
+                assertEquals(i, pipelined.read());
+
+            pipelined.read();
+            fail("Expected BlastFormatException");
+        } catch (BlastFormatException e) {
+            assertEquals(2, e.getCode());
+        }
+    }
+
+    @Test
+    public void testErrorAfterBulkRead() throws IOException, InterruptedException {
+        AtomicReference<Thread> producer = new AtomicReference<>();
+        try (InputStream pipelined = new PipelinedInputStream(failing(64), 64, 2, r -> {
+            producer.set(new Thread(r));
+            return producer.get();
+        })) {
+            producer.get().join(); /* both the data and the error are queued */
+
+            byte[] b = new byte[128];
+            assertEquals(64, pipelined.read(b));
+            for (int i = 0; i < 64; i++)
+                assertEquals(i, b[i]);
+
+            try {
+                pipelined.read(b);
+                fail("Expected BlastFormatException");
+            } catch (BlastFormatException e) {
+                assertEquals(2, e.getCode());
+            }
+        }
+    }
+
+    @Test
+    public void testErrorAfterSkip() throws IOException, InterruptedException {
+        AtomicReference<Thread> producer = new AtomicReference<>();
+        try (InputStream pipelined = new PipelinedInputStream(failing(64), 64, 2, r -> {
+            producer.set(new Thread(r));
+            return producer.get();
+        })) {
+            producer.get().join();
+
+            assertEquals(64, pipelined.skip(128));
+
+            try {
+                pipelined.skip(1);
+                fail("Expected BlastFormatException");
+            } catch (BlastFormatException e) {
+                assertEquals(2, e.getCode());
+            }
+        }
+    }
+
+    /* stream of the bytes 0, 1, 2... failing after count of them */
+    private static InputStream failing(int count) {
+        return new InputStream() {
+            int pos;
+
+            @Override
+            public int read() throws IOException {
+                if (pos == count)
+                    throw new BlastFormatException(2);
+                return pos++;
+            }
+        };
+    }
+
+    @Test
+    public void testClose() throws IOException, InterruptedException {
+        AtomicReference<Thread> producer = new AtomicReference<>();
+        byte[] data = new byte[1024 * 1024];
+
+        InputStream pipelined = new PipelinedInputStream(new ByteArrayInputStream(data), 1024, 2, r -> {
+            producer.set(new Thread(r));
+            return producer.get();
+        });
+        assertEquals(0, pipelined.read());
+        pipelined.close();
+
+        producer.get().join(1000);
+        assertFalse(producer.get().isAlive());
+        try {
+            pipelined.read();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
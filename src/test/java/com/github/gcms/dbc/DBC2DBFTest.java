@@ -0,0 +1,50 @@
+package com.github.gcms.dbc;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.github.gcms.TestUtils.assertStreamsEquals;
+import static org.junit.Assert.*;
+
+public class DBC2DBFTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testConvertDirectory() throws IOException {
+        Path source = folder.newFolder("source").toPath();
+        Path target = folder.getRoot().toPath().resolve("target");
+        Files.createDirectories(source.resolve("GO"));
+        for (String name : new String[]{"RDGO1301.dbc", "GO/RDGO1302.DBC"}) {
+            try (InputStream in = getClass().getResourceAsStream("/RDGO1301.dbc")) {
+                Files.copy(in, source.resolve(name));
+            }
+        }
+
+        DBC2DBF converter = new DBC2DBF(2, 64 * 1024, Long.MAX_VALUE, false);
+        assertTrue(converter.convert(source, target, System.err));
+        assertEquals(2, converter.getConvertedCount());
+
+        for (String name : new String[]{"RDGO1301.dbf", "GO/RDGO1302.DBF"}) {
+            try (InputStream decoded = Files.newInputStream(target.resolve(name))) {
+                assertStreamsEquals(new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc")), decoded);
+            }
+        }
+
+        converter = new DBC2DBF(2, 64 * 1024, Long.MAX_VALUE, false);
+        assertTrue(converter.convert(source, target, System.err));
+        assertEquals(0, converter.getConvertedCount());
+        assertEquals(2, converter.getSkippedCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMemoryLimit() {
+        new DBC2DBF(2, 64 * 1024, 32 * 1024, false);
+    }
+}
@@ -1,15 +1,26 @@
 package com.github.gcms.dbc;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 import static com.github.gcms.TestUtils.assertStreamsEquals;
 import static org.junit.Assert.*;
 
 public class DBCInputStreamTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
 
     @Test
     public void testUncompressDBF() throws IOException {
@@ -19,6 +30,63 @@ public class DBCInputStreamTest {
         assertStreamsEquals(plain, decoded);
     }
 
+    @Test
+    public void testLargeReads() throws IOException {
+        InputStream decoded = new BufferedInputStream(
+                new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc")), 1024 * 64);
+        InputStream reference = new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc"));
+
+        assertStreamsEquals(reference, decoded);
+    }
+
+    @Test
+    public void testOpenPath() throws IOException, URISyntaxException {
+        Path path = Paths.get(getClass().getResource("/RDGO1301.dbc").toURI());
+        InputStream decoded = new BufferedInputStream(DBCInputStream.open(path), 1024 * 64);
+        InputStream reference = new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc"));
+
+        assertStreamsEquals(reference, decoded);
+    }
+
+    @Test
+    public void testOpenPathTotals() throws IOException, URISyntaxException {
+        Path path = Paths.get(getClass().getResource("/RDGO1301.dbc").toURI());
+        DBCChannel channel = DBCChannel.open(path);
+
+        ByteBuffer b = ByteBuffer.allocate(1024 * 64);
+        long size = 0;
+        int len;
+        while ((len = channel.read(b)) != -1) {
+            assertEquals(len, b.position());
+            size += len;
+            b.clear();
+            assertEquals(size, channel.getTotalOut());
+        }
+        channel.close();
+        assertFalse(channel.isOpen());
+
+        assertEquals(3073 + 27954 * 660 + 1, size);
+        assertEquals(Files.size(path), channel.getTotalIn());
+    }
+
+    @Test
+    public void testPool() throws IOException {
+        DBCInputStreamPool pool = new DBCInputStreamPool(1);
+
+        DBCInputStream first = pool.open(getClass().getResourceAsStream("/RDGO1301.dbc"));
+        for (int i = 0; i < 1024 * 16; i++)
+            assertNotEquals(-1, first.read());
+        first.close();
+        first.close();
+        assertEquals(1, pool.getIdleCount());
+
+        DBCInputStream second = pool.open(getClass().getResourceAsStream("/RDGO1301.dbc"));
+        assertSame(first, second);
+        assertEquals(0, pool.getIdleCount());
+
+        assertStreamsEquals(new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc")), second);
+    }
+
     @Test
     public void testInvalidHeader() {
         InputStream input = new ByteArrayInputStream("hello world".getBytes());
@@ -44,6 +112,14 @@ public class DBCInputStreamTest {
         assertTrue(decoded.available() > 0);
     }
 
+    @Test
+    public void testFieldCount() throws IOException {
+        byte[] header = DBCProcessor.read(getClass().getResourceAsStream("/RDGO1301.dbc"));
+
+        assertEquals(3073, header.length);
+        assertEquals(95, DBCProcessor.getFieldCount(header));
+    }
+
     @Test
     public void testClose() throws IOException {
         InputStream decoded = new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc"));
@@ -54,4 +130,26 @@ public class DBCInputStreamTest {
         decoded.close();
         assertEquals(-1, decoded.read());
     }
+
+    @Test
+    public void testWriteDBC() throws IOException, URISyntaxException {
+        Path path = folder.newFile("RDGO1301.dbc").toPath();
+
+        try (InputStream in = new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc"));
+             DBCOutputStream out = DBCOutputStream.create(path)) {
+            byte[] b = new byte[1000];
+            int len;
+            while ((len = in.read(b)) != -1)
+                out.write(b, 0, len);
+        }
+
+        // same header and CRC
+        byte[] original = Files.readAllBytes(Paths.get(getClass().getResource("/RDGO1301.dbc").toURI()));
+        byte[] written = Files.readAllBytes(path);
+        int headerLength = (original[8] & 0xff) + ((original[9] & 0xff) << 8);
+        assertArrayEquals(Arrays.copyOf(original, headerLength + 4), Arrays.copyOf(written, headerLength + 4));
+
+        assertStreamsEquals(new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc")),
+                DBCInputStream.open(path));
+    }
 }
@@ -0,0 +1,82 @@
+package com.github.gcms.dbc;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.Adler32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DBCVerifierTest {
+
+    @Test
+    public void testVerify() throws IOException {
+        DBCVerifier.Result result = new DBCVerifier().verify(getClass().getResourceAsStream("/RDGO1301.dbc"));
+
+        assertEquals(3073 + 27954 * 660 + 1, result.getSize());
+        assertEquals(27954, result.getRecordCount());
+        assertEquals(0x776cfcb9L, result.getChecksum());
+    }
+
+    @Test
+    public void testFingerprint() throws IOException {
+        Adler32 expected = new Adler32();
+        try (InputStream in = new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc"))) {
+            byte[] b = new byte[1024 * 64];
+            int len;
+            while ((len = in.read(b)) != -1)
+                expected.update(b, 0, len);
+        }
+
+        DBCVerifier.Result result = new DBCVerifier(Adler32::new, 4096)
+                .verify(getClass().getResourceAsStream("/RDGO1301.dbc"));
+        assertEquals(expected.getValue(), result.getChecksum());
+        assertEquals(27954, result.getRecordCount());
+    }
+
+    @Test
+    public void testWrongChecksum() throws IOException {
+        byte[] dbc = read(getClass().getResourceAsStream("/RDGO1301.dbc"));
+        dbc[3073] ^= 1;
+
+        try {
+            new DBCVerifier().verify(new ByteArrayInputStream(dbc));
+            fail("Expected DBCFormatException");
+        } catch (DBCFormatException ex) {
+            assertTrue(ex.getMessage().contains("checksum"));
+        }
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        byte[] dbc = read(getClass().getResourceAsStream("/RDGO1301.dbc"));
+
+        try {
+            new DBCVerifier().verify(new ByteArrayInputStream(Arrays.copyOf(dbc, dbc.length / 2)));
+            fail("Expected IOException");
+        } catch (IOException ex) {
+            // malformed data or wrong checksum
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSmallBuffer() {
+        new DBCVerifier(Adler32::new, 1000);
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] b = new byte[1024 * 64];
+        int len;
+        while ((len = in.read(b)) != -1)
+            out.write(b, 0, len);
+
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.gcms.dbc;
+
+import com.github.gcms.blast.BlastIndex;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SeekableDBCInputStreamTest {
+    private static Path path;
+    private static byte[] plain;
+
+    @BeforeClass
+    public static void decode() throws IOException, URISyntaxException {
+        path = Paths.get(SeekableDBCInputStreamTest.class.getResource("/RDGO1301.dbc").toURI());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DBCInputStream in = DBCInputStream.open(path)) {
+            byte[] b = new byte[1024 * 64];
+            int len;
+            while ((len = in.read(b)) != -1)
+                out.write(b, 0, len);
+        }
+        plain = out.toByteArray();
+    }
+
+    @Test
+    public void testSeek() throws IOException {
+        BlastIndex index = SeekableDBCInputStream.index(path, 1024 * 64);
+        assertTrue(index.getCheckpoints().size() > 10);
+
+        try (SeekableDBCInputStream in = SeekableDBCInputStream.open(path, index)) {
+            assertSeeks(in);
+        }
+    }
+
+    @Test
+    public void testSeekWithoutIndex() throws IOException {
+        try (SeekableDBCInputStream in = SeekableDBCInputStream.open(path, null)) {
+            assertSeeks(in);
+        }
+    }
+
+    @Test
+    public void testSaveIndex() throws IOException {
+        BlastIndex index = SeekableDBCInputStream.index(path, BlastIndex.DEFAULT_INTERVAL);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.write(out);
+        BlastIndex loaded = BlastIndex.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(index.getCheckpoints().size(), loaded.getCheckpoints().size());
+        assertEquals(plain.length, loaded.getLength() + headerLength());
+
+        try (SeekableDBCInputStream in = SeekableDBCInputStream.open(path, loaded)) {
+            assertSeeks(in);
+        }
+    }
+
+    @Test
+    public void testSeekRecord() throws IOException {
+        try (SeekableDBCInputStream in = SeekableDBCInputStream.open(path, SeekableDBCInputStream.index(path, 1024 * 64))) {
+            long last = in.getRecordCount() - 1;
+            byte[] record = new byte[in.getRecordLength()];
+
+            in.seekRecord(last);
+            new DataInputStream(in).readFully(record);
+
+            int offset = headerLength() + (int) last * record.length;
+            assertArrayEquals(Arrays.copyOfRange(plain, offset, offset + record.length), record);
+        }
+    }
+
+    private static int headerLength() {
+        return (plain[8] & 0xff) + ((plain[9] & 0xff) << 8);
+    }
+
+    private static void assertSeeks(SeekableDBCInputStream in) throws IOException {
+        Random random = new Random(1);
+        byte[] b = new byte[5000];
+        for (int i = 0; i < 50; i++) {
+            int offset = i == 0 ? 10 : random.nextInt(plain.length);
+            in.seek(offset);
+            assertEquals(offset, in.position());
+
+            int len = Math.min(b.length, plain.length - offset);
+            new DataInputStream(in).readFully(b, 0, len);
+            assertArrayEquals("Seek to " + offset, Arrays.copyOfRange(plain, offset, offset + len),
+                    Arrays.copyOf(b, len));
+        }
+
+        in.seek(plain.length + 10);
+        assertEquals(plain.length, in.position());
+        assertEquals(-1, in.read());
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.gcms.dbf;
+
+import com.github.gcms.dbc.DBCInputStream;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class DBFExporterTest {
+
+    @Test
+    public void testExportCSV() throws IOException {
+        byte[] plain = DBFReaderTest.decode(new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc")));
+
+        StringBuilder expected = new StringBuilder();
+        long count = 0;
+        try (DBFReader reader = new DBFReader(new ByteArrayInputStream(plain))) {
+            for (DBFField field : reader.getFields())
+                expected.append(field.getIndex() > 0 ? "," : "").append(field.getName());
+            expected.append('\n');
+
+            while (reader.next()) {
+                if (reader.isDeleted())
+                    continue;
+                for (int i = 0; i < reader.getFields().size(); i++) {
+                    String value = reader.getString(i);
+                    if (value.contains(",") || value.contains("\""))
+                        value = '"' + value.replace("\"", "\"\"") + '"';
+                    expected.append(i > 0 ? "," : "").append(value);
+                }
+                expected.append('\n');
+                count++;
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DBFReader reader = new DBFReader(new ByteArrayInputStream(plain))) {
+            assertEquals(count, new DBFExporter(DBFExporter.Format.CSV, 1000).export(reader, Channels.newChannel(out)));
+        }
+        assertEquals(expected.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEscaping() throws IOException {
+        byte[] dbf = dbf(new String[]{"NAME", "C", "8", "VALUE", "N", "6", "FLAG", "L", "1"},
+                record("  a,\"b\"", "12.50", "T"),
+                record("c\td\\é", "-0.1", "?"),
+                "*" + record("deleted", "1", "F"),
+                record("", "+1", "N"),
+                record("", ".5", ""));
+
+        assertEquals("NAME,VALUE,FLAG\n\"a,\"\"b\"\"\",12.50,T\nc\td\\é,-0.1,?\n,+1,N\n,.5,\n",
+                export(dbf, DBFExporter.Format.CSV));
+        assertEquals("NAME\tVALUE\tFLAG\na,\"b\"\t12.50\tT\nc\\td\\\\é\t-0.1\t?\n\t+1\tN\n\t.5\t\n",
+                export(dbf, DBFExporter.Format.TSV));
+        assertEquals("{\"NAME\":\"a,\\\"b\\\"\",\"VALUE\":12.50,\"FLAG\":true}\n"
+                        + "{\"NAME\":\"c\\u0009d\\\\é\",\"VALUE\":-0.1,\"FLAG\":null}\n"
+                        + "{\"NAME\":null,\"VALUE\":\"+1\",\"FLAG\":false}\n"
+                        + "{\"NAME\":null,\"VALUE\":\".5\",\"FLAG\":null}\n",
+                export(dbf, DBFExporter.Format.JSONL));
+    }
+
+    private static String export(byte[] dbf, DBFExporter.Format format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DBFReader reader = new DBFReader(new ByteArrayInputStream(dbf))) {
+            new DBFExporter(format, 16).export(reader, Channels.newChannel(out));
+        }
+
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String record(String name, String value, String flag) {
+        return String.format("%-8s%6s%1s", name, value, flag);
+    }
+
+    /* fields as name, type and length triples; records as text, CP850 */
+    private static byte[] dbf(String[] fields, String... records) {
+        int count = fields.length / 3;
+        byte[] header = new byte[32 + count * 32 + 1];
+        int recordLength = 1;
+        for (int i = 0; i < count; i++) {
+            int pos = 32 + i * 32;
+            byte[] name = fields[i * 3].getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(name, 0, header, pos, name.length);
+            header[pos + 11] = (byte) fields[i * 3 + 1].charAt(0);
+            header[pos + 16] = (byte) Integer.parseInt(fields[i * 3 + 2]);
+            recordLength += header[pos + 16];
+        }
+        header[0] = 3;
+        header[4] = (byte) records.length;
+        header[8] = (byte) header.length;
+        header[10] = (byte) recordLength;
+        header[29] = 2;                     /* CP850 */
+        header[header.length - 1] = 0x0d;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(header, 0, header.length);
+        for (String record : records) {
+            byte[] b = record.getBytes(Charset.forName("IBM850"));
+            if (b.length == recordLength - 1)
+                out.write(' ');
+            out.write(b, 0, b.length);
+        }
+        out.write(0x1a);
+
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,397 @@
+package com.github.gcms.dbf;
+
+import com.github.gcms.dbc.DBCInputStream;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class DBFReaderTest {
+
+    @Test
+    public void testReadHeader() throws IOException {
+        try (DBFReader reader = new DBFReader(new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc")))) {
+            DBFHeader header = reader.getHeader();
+
+            assertEquals(27954, header.getRecordCount());
+            assertEquals(660, header.getRecordLength());
+            assertEquals(3073, header.getHeaderLength());
+            assertEquals(95, header.getFieldCount());
+
+            DBFField field = header.getField(header.indexOf("val_tot"));
+            assertEquals("VAL_TOT", field.getName());
+            assertEquals('N', field.getType());
+            assertEquals(14, field.getLength());
+            assertEquals(2, field.getDecimalCount());
+
+            DBFField last = header.getField(header.getFieldCount() - 1);
+            assertEquals(header.getRecordLength(), last.getOffset() + last.getLength());
+            assertEquals(-1, header.indexOf("NONE"));
+        }
+    }
+
+    @Test
+    public void testReadRecords() throws IOException {
+        byte[] plain = decode(new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc")));
+
+        try (DBFReader reader = new DBFReader(new ByteArrayInputStream(plain), 1000)) {
+            DBFHeader header = reader.getHeader();
+            int age = header.indexOf("IDADE");
+            byte[] field = new byte[64];
+
+            long count = 0;
+            while (reader.next()) {
+                int record = header.getHeaderLength() + (int) count * header.getRecordLength();
+                assertEquals(count, reader.getRecordNumber());
+                assertEquals(plain[record] == '*', reader.isDeleted());
+
+                for (DBFField f : header.getFields()) {
+                    int len = reader.getBytes(f.getIndex(), field, 0);
+                    assertArrayEquals(Arrays.copyOfRange(plain, record + f.getOffset(), record + f.getOffset() + len),
+                            Arrays.copyOf(field, len));
+                }
+
+                String text = new String(plain, record + header.getField(age).getOffset(), 2,
+                        StandardCharsets.US_ASCII).trim();
+                assertEquals(text.isEmpty(), reader.isBlank(age));
+                assertEquals(text.isEmpty() ? 0 : Integer.parseInt(text), reader.getInt(age));
+                assertEquals(text, reader.getString(age));
+                count++;
+            }
+
+            assertEquals(header.getRecordCount(), count);
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void testSelect() throws IOException {
+        byte[] plain = decode(new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc")));
+
+        try (DBFReader all = new DBFReader(new ByteArrayInputStream(plain));
+             DBFReader selected = new DBFReader(new ByteArrayInputStream(plain)).select("idade", "SEXO", "N_AIH")) {
+            int age = all.indexOf("IDADE"), sex = all.indexOf("SEXO"), aih = all.indexOf("N_AIH");
+            assertEquals(3, selected.getFields().size());
+            assertEquals(1, selected.indexOf("sexo"));
+            assertEquals(-1, selected.indexOf("CEP"));
+            assertEquals(2 + 1 + 13, selected.getRowLength());
+
+            byte[] row = new byte[selected.getRowLength()];
+            while (all.next()) {
+                assertTrue(selected.next());
+                assertEquals(all.getInt(age), selected.getInt(0));
+                assertEquals(all.getString(sex), selected.getString(1));
+
+                assertEquals(row.length, selected.getRow(row, 0));
+                assertEquals(all.getString(age) + all.getString(sex) + all.getString(aih),
+                        new String(row, StandardCharsets.US_ASCII).replace(" ", ""));
+            }
+            assertFalse(selected.next());
+        }
+    }
+
+    @Test
+    public void testFilter() throws IOException {
+        byte[] plain = decode(new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc")));
+        DBFPredicate predicate = DBFPredicate.prefix("MUNIC_RES", "5208")
+                .and(DBFPredicate.in("SEXO", "3", "1", "9"))
+                .and(DBFPredicate.range("IDADE", "20", "39").or(DBFPredicate.equal("IDADE", "5")))
+                .and(DBFPredicate.equal("CEP", "").negate());
+
+        try (DBFReader all = new DBFReader(new ByteArrayInputStream(plain));
+             DBFReader filtered = new DBFReader(new ByteArrayInputStream(plain)).select("IDADE").filter(predicate)) {
+            int munic = all.indexOf("MUNIC_RES"), sex = all.indexOf("SEXO"), age = all.indexOf("IDADE");
+            int cep = all.indexOf("CEP");
+
+            long count = 0;
+            while (all.next()) {
+                int value = all.getInt(age);
+                if (all.getString(munic).startsWith("5208") && "139".contains(all.getString(sex))
+                        && !all.isBlank(sex) && (value >= 20 && value <= 39 || value == 5) && !all.isBlank(cep)) {
+                    assertTrue(filtered.next());
+                    assertEquals(all.getRecordNumber(), filtered.getRecordNumber());
+                    assertEquals(value, filtered.getInt(0));
+                    count++;
+                }
+            }
+            assertFalse(filtered.next());
+            assertTrue(count > 100);
+        }
+    }
+
+    @Test
+    public void testStream() throws IOException {
+        byte[] plain = decode(new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc")));
+
+        long expected = 0;
+        try (DBFReader reader = new DBFReader(new ByteArrayInputStream(plain))) {
+            int age = reader.indexOf("IDADE");
+            while (reader.next())
+                expected += reader.getInt(age);
+        }
+
+        try (Stream<DBFRecord> records = new DBFReader(new ByteArrayInputStream(plain)).stream()) {
+            assertEquals(expected, records.mapToLong(r -> r.getInt(r.indexOf("IDADE"))).sum());
+        }
+
+        try (Stream<DBFRecord> records = new DBFReader(new ByteArrayInputStream(plain)).select("IDADE", "SEXO")
+                .stream(100).parallel()) {
+            List<DBFRecord> list = records.collect(Collectors.toList());
+            assertEquals(27954, list.size());
+            assertEquals(expected, list.stream().mapToLong(r -> r.getInt(0)).sum());
+            for (int i = 0; i < list.size(); i++)
+                assertEquals(i, list.get(i).getRecordNumber());
+        }
+    }
+
+    @Test
+    public void testColumnBatch() throws IOException {
+        byte[] plain = decode(new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc")));
+
+        try (DBFReader all = new DBFReader(new ByteArrayInputStream(plain));
+             DBFReader reader = new DBFReader(new ByteArrayInputStream(plain)).select("IDADE", "VAL_TOT", "SEXO")) {
+            int age = all.indexOf("IDADE"), value = all.indexOf("VAL_TOT"), sex = all.indexOf("SEXO");
+            DBFColumnBatch batch = reader.createBatch(1000);
+            DBFColumn.IntColumn ages = (DBFColumn.IntColumn) batch.getColumn("idade");
+            DBFColumn.DoubleColumn values = (DBFColumn.DoubleColumn) batch.getColumn(1);
+            DBFColumn.CharColumn sexes = (DBFColumn.CharColumn) batch.getColumn(2);
+
+            long count = 0;
+            while (reader.nextBatch(batch)) {
+                assertTrue(batch.getSize() <= 1000);
+                for (int i = 0; i < batch.getSize(); i++) {
+                    do {
+                        assertTrue(all.next());
+                    } while (all.isDeleted());
+
+                    assertEquals(all.getRecordNumber(), batch.getRecordNumber(i));
+                    assertEquals(all.isBlank(age), ages.isNull(i));
+                    assertEquals(all.getInt(age), ages.get(i));
+                    assertEquals(new BigDecimal(all.getString(value)).doubleValue(), values.get(i), 0);
+                    assertEquals(all.getString(sex), sexes.getString(i));
+                    count++;
+                }
+            }
+            assertFalse(all.next());
+            assertTrue(count > 27000);
+        }
+    }
+
+    @Test
+    public void testDictionary() throws IOException {
+        byte[] plain = decode(new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc")));
+
+        try (DBFReader reader = new DBFReader(new ByteArrayInputStream(plain)).select("MUNIC_RES", "N_AIH", "IDADE")) {
+            assertNull(reader.getDictionary(2));
+            DBFDictionary munic = reader.getDictionary(0), aih = reader.getDictionary(1);
+            Map<String, String> seen = new HashMap<>();
+            DBFColumnBatch batch = reader.createBatch(512);
+            DBFColumn.CharColumn column = (DBFColumn.CharColumn) batch.getColumn(0);
+
+            assertTrue(reader.nextBatch(batch));
+            for (int i = 0; i < batch.getSize(); i++) {
+                String value = column.getString(i);
+                assertEquals(value, munic.getValue(column.getId(i)));
+                assertSame(seen.computeIfAbsent(value, v -> value), value);
+            }
+            while (reader.next()) {
+                String value = reader.getString(0);
+                assertSame(seen.computeIfAbsent(value, v -> value), value);
+                reader.getString(1);
+            }
+
+            assertTrue(munic.isEnabled());
+            assertEquals(seen.size(), munic.getSize());
+            assertFalse(aih.isEnabled());
+            assertEquals(DBFDictionary.DEFAULT_MAX_SIZE, aih.getSize());
+            assertEquals(-1, aih.lookup(plain, 3073 + reader.getFields().get(1).getOffset()));
+        }
+    }
+
+    @Test
+    public void testCharset() throws IOException {
+        byte[] plain = decode(new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc")));
+        Charset cp850 = Charset.forName("IBM850");
+
+        byte[] all = new byte[256];
+        for (int i = 0; i < all.length; i++)
+            all[i] = (byte) i;
+        assertEquals(new String(all, cp850).trim(), DBFCharset.of(cp850).decode(all, 0, all.length));
+        assertEquals(new String(all, StandardCharsets.ISO_8859_1).trim(), DBFCharset.ISO_8859_1.decode(all, 0, 256));
+
+        try (DBFReader reader = new DBFReader(new ByteArrayInputStream(plain));
+             DBFReader latin1 = new DBFReader(new ByteArrayInputStream(plain)).charset(DBFCharset.ISO_8859_1)) {
+            assertEquals(2, reader.getHeader().getLanguageDriver());
+            assertEquals(cp850, reader.getCharset().getCharset());
+            assertSame(DBFCharset.of(cp850), reader.getCharset());
+
+            char[] chars = new char[256];
+            StringBuilder sb = new StringBuilder();
+            int decoded = 0;
+            while (reader.next()) {
+                assertTrue(latin1.next());
+                for (DBFField field : reader.getFields()) {
+                    int i = field.getIndex(), pos = reader.getOffset(i);
+                    String expected = new String(plain, 3073 + (int) reader.getRecordNumber() * 660 + field.getOffset(),
+                            field.getLength(), cp850).trim();
+                    assertEquals(expected, reader.getString(i));
+                    assertEquals(expected, new String(chars, 0, reader.getChars(i, chars, 0)));
+
+                    sb.setLength(0);
+                    reader.getCharset().decode(reader.getBuffer(), pos, field.getLength(), sb);
+                    assertEquals(expected, sb.toString());
+                    assertEquals(new String(latin1.getBuffer(), pos, field.getLength(), StandardCharsets.ISO_8859_1).trim(),
+                            latin1.getString(i));
+                    if (!expected.equals(latin1.getString(i)))
+                        decoded++;
+                }
+            }
+            assertTrue(decoded > 0);
+        }
+    }
+
+    @Test
+    public void testAsciiCompatibleCharset() {
+        for (int id : new int[]{0x01, 0x02, 0x03, 0x64, 0x65, 0x66, 0x67, 0xc8, 0xc9, 0xcb})
+            assertNotNull(DBFCharset.forLanguageDriver(id));
+
+        assumeTrue(Charset.isSupported("IBM037"));
+        try {
+            DBFCharset.forName("IBM037");
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // EBCDIC, 'P' is 0xd7
+        }
+    }
+
+    @Test
+    public void testFilterCharset() throws IOException {
+        byte[] plain = decode(new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc")));
+
+        /* first character value which is not ASCII */
+        String value = null, latin1Value = null, name = null;
+        int field = -1;
+        try (DBFReader reader = new DBFReader(new ByteArrayInputStream(plain));
+             DBFReader latin1 = new DBFReader(new ByteArrayInputStream(plain)).charset(DBFCharset.ISO_8859_1)) {
+            while (value == null && reader.next()) {
+                assertTrue(latin1.next());
+                for (DBFField f : reader.getFields()) {
+                    String s = reader.getString(f.getIndex());
+                    if (f.getType() == 'C' && !s.equals(latin1.getString(f.getIndex()))) {
+                        value = s;
+                        latin1Value = latin1.getString(f.getIndex());
+                        field = f.getIndex();
+                        name = f.getName();
+                        break;
+                    }
+                }
+            }
+        }
+        assertNotNull(value);
+
+        long expected = 0;
+        try (DBFReader reader = new DBFReader(new ByteArrayInputStream(plain))) {
+            while (reader.next()) {
+                if (value.equals(reader.getString(field)))
+                    expected++;
+            }
+        }
+
+        try (DBFReader cp850 = new DBFReader(new ByteArrayInputStream(plain))
+                .filter(DBFPredicate.equal(name, value));
+             DBFReader latin1 = new DBFReader(new ByteArrayInputStream(plain))
+                     .filter(DBFPredicate.equal(name, latin1Value)).charset(DBFCharset.ISO_8859_1)) {
+            long count = 0;
+            while (cp850.next()) {
+                assertEquals(value, cp850.getString(field));
+                assertTrue(latin1.next());
+                assertEquals(cp850.getRecordNumber(), latin1.getRecordNumber());
+                count++;
+            }
+            assertFalse(latin1.next());
+            assertEquals(expected, count);
+        }
+    }
+
+    @Test
+    public void testTruncatedRecord() throws IOException {
+        byte[] plain = decode(new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc")));
+
+        try (DBFReader reader = new DBFReader(new ByteArrayInputStream(plain, 0, 3073 + 660 * 2 + 10))) {
+            assertTrue(reader.next());
+            assertTrue(reader.next());
+            reader.next();
+            fail("Expected DBFFormatException");
+        } catch (DBFFormatException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testGetLong() throws IOException {
+        DBFReader reader = new DBFReader(new ByteArrayInputStream(dbf(" -123", "  +45", "     ", "12.5 ")));
+
+        assertTrue(reader.next());
+        assertEquals(-123, reader.getLong(0));
+        assertTrue(reader.next());
+        assertEquals(45, reader.getInt(0));
+        assertTrue(reader.next());
+        assertEquals(0, reader.getInt(0));
+        assertTrue(reader.isBlank(0));
+        assertTrue(reader.next());
+        try {
+            reader.getInt(0);
+            fail("Expected NumberFormatException");
+        } catch (NumberFormatException e) {
+            // expected
+        }
+        assertFalse(reader.next());
+    }
+
+    /* one numeric field of length 5, with an end of file marker */
+    static byte[] dbf(String... values) {
+        byte[] header = new byte[65];
+        header[0] = 3;
+        header[4] = (byte) values.length;
+        header[8] = 65;
+        header[10] = 6;
+        header[32] = 'N';                  /* field name */
+        header[32 + 11] = 'N';
+        header[32 + 16] = 5;
+        header[64] = 0x0d;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(header, 0, header.length);
+        for (String value : values) {
+            out.write(' ');
+            out.write(value.getBytes(StandardCharsets.US_ASCII), 0, 5);
+        }
+        out.write(0x1a);
+
+        return out.toByteArray();
+    }
+
+    static byte[] decode(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] b = new byte[1024 * 64];
+        int len;
+        while ((len = in.read(b)) != -1)
+            out.write(b, 0, len);
+
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.gcms.dbf;
+
+import com.github.gcms.dbc.DBCInputStream;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.Assert.*;
+
+public class FieldParserTest {
+
+    @Test
+    public void testParseNumbers() {
+        assertEquals(-123, FieldParser.parseInt(bytes(" -123"), 0, 5));
+        assertEquals(0, FieldParser.parseInt(bytes("     "), 0, 5));
+        assertEquals(999999999999999999L, FieldParser.parseLong(bytes("999999999999999999"), 0, 18));
+        assertError(() -> FieldParser.parseInt(bytes("9999999999"), 0, 10));
+        assertError(() -> FieldParser.parseLong(bytes(" 1 2 "), 0, 5));
+        assertError(() -> FieldParser.parseLong(bytes("   - "), 0, 5));
+
+        assertEquals(0.1, FieldParser.parseDouble(bytes("  0.1"), 0, 5), 0);
+        assertEquals(-123.45, FieldParser.parseDouble(bytes("  -123.45"), 0, 9), 0);
+        assertEquals(5, FieldParser.parseDouble(bytes("5.   "), 0, 5), 0);
+        assertEquals(1.5e-3, FieldParser.parseDouble(bytes("1.5E-3"), 0, 6), 0);
+        assertEquals(0.30000000000000004, FieldParser.parseDouble(bytes("0.30000000000000004"), 0, 19), 0);
+        assertError(() -> FieldParser.parseDouble(bytes("1.2.3"), 0, 5));
+
+        assertEquals(12345, FieldParser.parseScaled(bytes(" 123.45"), 0, 7, 2));
+        assertEquals(-12300, FieldParser.parseScaled(bytes("  -123"), 0, 6, 2));
+        assertEquals(1230, FieldParser.parseScaled(bytes("123.0"), 0, 5, 1));
+        assertError(() -> FieldParser.parseScaled(bytes("1.234"), 0, 5, 2));
+    }
+
+    @Test
+    public void testParseDatesAndLogicals() {
+        for (LocalDate date = LocalDate.of(1899, 12, 25); date.getYear() < 2101; date = date.plusDays(17)) {
+            byte[] b = bytes(String.format("%04d%02d%02d", date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+            assertEquals(date.toEpochDay(), FieldParser.parseEpochDay(b, 0, 8));
+        }
+        assertEquals(0, FieldParser.parseEpochDay(bytes("        "), 0, 8));
+        assertError(() -> FieldParser.parseEpochDay(bytes("20010229"), 0, 8));
+        assertError(() -> FieldParser.parseEpochDay(bytes("2001-1-1"), 0, 8));
+
+        assertEquals(1, FieldParser.parseLogical(bytes("y"), 0, 1));
+        assertEquals(0, FieldParser.parseLogical(bytes("F"), 0, 1));
+        assertEquals(-1, FieldParser.parseLogical(bytes("?"), 0, 1));
+        assertEquals(-1, FieldParser.parseLogical(bytes(" "), 0, 1));
+        assertError(() -> FieldParser.parseLogical(bytes("X"), 0, 1));
+    }
+
+    @Test
+    public void testRecordAccessors() throws IOException {
+        byte[] plain = DBFReaderTest.decode(new DBCInputStream(getClass().getResourceAsStream("/RDGO1301.dbc")));
+
+        try (DBFReader reader = new DBFReader(new ByteArrayInputStream(plain)).select("VAL_TOT", "DT_INTER")) {
+            BigDecimal total = BigDecimal.ZERO;
+            long scaled = 0;
+            while (reader.next()) {
+                BigDecimal value = new BigDecimal(reader.getString(0));
+                total = total.add(value);
+                scaled += reader.getScaled(0);
+                assertEquals(value.doubleValue(), reader.getDouble(0), 0);
+
+                String date = reader.getString(1);
+                assertEquals(LocalDate.of(Integer.parseInt(date.substring(0, 4)), Integer.parseInt(date.substring(4, 6)),
+                        Integer.parseInt(date.substring(6))), reader.getDate(1));
+            }
+            assertEquals(total, BigDecimal.valueOf(scaled, 2));
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void assertError(Runnable parse) {
+        try {
+            parse.run();
+            fail("Expected NumberFormatException");
+        } catch (NumberFormatException e) {
+            // expected
+        }
+    }
+}